@@ -16,9 +16,7 @@ import com.github.xiaogegechen.library.CornerButton;
 import com.github.xiaogegechen.library.MenuView;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 
 public class MainActivity extends AppCompatActivity {
@@ -98,13 +96,6 @@ public class MainActivity extends AppCompatActivity {
         private List<Item> mItemList;
         private MenuView mMenuView;
 
-        private Map<Integer, View> mViewMap = new HashMap<>();
-
-        // 目前被选中的位置
-        private int mCurrentSelectedPosition = -1;
-        // 上一个被选中的位置
-        private int mLastSelectedPosition = -1;
-
         public Adapter(List<Item> itemList, MenuView menuView) {
             mItemList = itemList;
             mMenuView = menuView;
@@ -116,45 +107,37 @@ public class MainActivity extends AppCompatActivity {
             final View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item, parent, false);
 
             ImageView imageView = view.findViewById(R.id.item_image);
-            imageView.setBackgroundColor(item.getNormalColor());
+            // 绑定时直接拿到，不用每次查找
+            view.setTag(imageView);
             imageView.setImageResource(item.getIconId());
+            bindSelection(position, imageView);
             imageView.setOnClickListener(v -> {
-                // 更新两个position
-                if(position != mCurrentSelectedPosition){
-                    mLastSelectedPosition = mCurrentSelectedPosition;
-                }
-                mCurrentSelectedPosition = position;
-                Log.d(TAG, "onClick: " + position + ", mLastSelectedPosition is : " + mLastSelectedPosition);
-                v.setBackgroundColor(item.getClickedColor());
-                // 还原上一个view
-                if(mLastSelectedPosition != -1){
-                    View lastSelectedView = mViewMap.get(mLastSelectedPosition);
-                    if(lastSelectedView != null){
-                        Log.d(TAG, "reset last view: ");
-                        lastSelectedView.findViewById(R.id.item_image).setBackgroundColor(item.getNormalColor());
-                    }
-                }
+                Log.d(TAG, "onClick: " + position);
+                // 选中状态由menuView管理，只会重新绑定选中状态改变的子View
+                mMenuView.setItemSelected(position, true);
                 // 响应点击
                 mMenuView.close(1, 3);
             });
-            mViewMap.put(position, view);
             return view;
         }
 
         @Override
-        public int getCount() {
-            return mItemList.size();
+        public boolean onBindView(int position, View view, Object payload) {
+            if(payload != MenuView.PAYLOAD_SELECTION){
+                return false;
+            }
+            bindSelection(position, (ImageView) view.getTag());
+            return true;
+        }
+
+        private void bindSelection(int position, ImageView imageView){
+            Item item = mItemList.get(position);
+            imageView.setBackgroundColor(isItemSelected(position) ? item.getClickedColor() : item.getNormalColor());
         }
 
         @Override
-        public void makeViewSelected(int position) {
-            super.makeViewSelected(position);
-            mCurrentSelectedPosition = position;
-            final Item item = mItemList.get(position);
-            final View view = mViewMap.get(position);
-            if (view != null) {
-                view.findViewById(R.id.item_image).setBackgroundColor(item.getClickedColor());
-            }
+        public int getCount() {
+            return mItemList.size();
         }
     }
 }
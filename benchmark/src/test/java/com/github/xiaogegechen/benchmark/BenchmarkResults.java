@@ -0,0 +1,70 @@
+package com.github.xiaogegechen.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 收集每一组参数的耗时，最后写成json文件，方便不同版本之间对比：
+ * <pre>
+ * {"timestamp": 1571500000000, "results": [{"view": "ColorTextView", "textLength": 8, ..., "drawNs": 12345}, ...]}
+ * </pre>
+ */
+final class BenchmarkResults {
+
+    private final List<Map<String, Object>> mResults = new ArrayList<> ();
+
+    /**
+     * 开始记录新的一组结果
+     * @param view 控件名
+     * @return 这一组结果，按照插入顺序写出
+     */
+    Map<String, Object> newResult(String view){
+        Map<String, Object> result = new LinkedHashMap<> ();
+        result.put ("view", view);
+        mResults.add (result);
+        return result;
+    }
+
+    void write(String path) throws IOException {
+        File file = new File (path);
+        File parent = file.getParentFile ();
+        if(parent != null && !parent.exists () && !parent.mkdirs ()){
+            throw new IOException ("can not create directory " + parent);
+        }
+        try (Writer writer = new OutputStreamWriter (new FileOutputStream (file), "UTF-8")) {
+            writer.write (toJson ());
+        }
+    }
+
+    String toJson(){
+        StringBuilder builder = new StringBuilder ();
+        builder.append ("{\n  \"timestamp\": ").append (System.currentTimeMillis ()).append (",\n  \"results\": [");
+        for (int i = 0; i < mResults.size (); i++) {
+            builder.append (i == 0 ? "\n    {" : ",\n    {");
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : mResults.get (i).entrySet ()) {
+                if(!first){
+                    builder.append (", ");
+                }
+                first = false;
+                builder.append ('"').append (entry.getKey ()).append ("\": ");
+                Object value = entry.getValue ();
+                if(value instanceof Number || value instanceof Boolean){
+                    builder.append (value);
+                }else{
+                    builder.append ('"').append (String.valueOf (value).replace ("\\", "\\\\").replace ("\"", "\\\"")).append ('"');
+                }
+            }
+            builder.append ('}');
+        }
+        builder.append ("\n  ]\n}\n");
+        return builder.toString ();
+    }
+}
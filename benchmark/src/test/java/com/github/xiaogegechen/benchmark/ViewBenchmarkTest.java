@@ -0,0 +1,234 @@
+package com.github.xiaogegechen.benchmark;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.TypedValue;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.github.xiaogegechen.library.ColorTextView;
+import com.github.xiaogegechen.library.CornerButton;
+import com.github.xiaogegechen.library.MenuView;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 统计ColorTextView、CornerButton、MenuView在不同参数下inflate、measure、layout、draw的耗时（取中位数），
+ * 同时按照相同的文字长度、字号和测量模式统计系统TextView作为对照，
+ * 结果写到系统属性benchmark.output指定的json文件中。运行在JVM上，数值只用来和之前的版本对比，不代表真机上的耗时。
+ * SDK 28的原生图形缺少HardwareRenderer，所以运行在SDK 29上，需要Java 9以上
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 29)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ViewBenchmarkTest {
+
+    private static final int WARM_UP = 20;
+    private static final int ITERATIONS = 200;
+    private static final int INFLATE_ITERATIONS = 50;
+
+    private static final int[] TEXT_LENGTHS = {1, 8, 32};
+    private static final int[] TEXT_SIZES = {40, 100, 300};
+    private static final int[] ITEM_COUNTS = {5, 20, 100};
+
+    // 精确模式和wrap_content模式下父布局给的尺寸
+    private static final int PARENT_WIDTH = 1080;
+    private static final int PARENT_HEIGHT = 1920;
+
+    private static final String TEXT_SOURCE = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    private static final BenchmarkResults sResults = new BenchmarkResults ();
+
+    private Context mContext;
+    private LayoutInflater mInflater;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.getApplication ();
+        mInflater = LayoutInflater.from (mContext);
+    }
+
+    @AfterClass
+    public static void writeResults() throws IOException {
+        sResults.write (System.getProperty ("benchmark.output", "build/benchmark/results.json"));
+    }
+
+    @Test
+    public void colorTextView() {
+        long inflateNs = inflate (R.layout.benchmark_color_text_view);
+        for (int textLength : TEXT_LENGTHS) {
+            for (int textSize : TEXT_SIZES) {
+                for (boolean exactly : new boolean[]{true, false}) {
+                    ColorTextView view = (ColorTextView) mInflater.inflate (R.layout.benchmark_color_text_view, null);
+                    view.edit ().text (makeText (textLength)).textSize (textSize).apply ();
+                    Map<String, Object> result = sResults.newResult ("ColorTextView");
+                    result.put ("textLength", textLength);
+                    result.put ("textSize", textSize);
+                    result.put ("spec", exactly ? "exactly" : "wrap_content");
+                    result.put ("inflateNs", inflateNs);
+                    runFrames (view, exactly, result);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void cornerButton() {
+        long inflateNs = inflate (R.layout.benchmark_corner_button);
+        for (int textLength : TEXT_LENGTHS) {
+            for (int textSize : TEXT_SIZES) {
+                for (boolean exactly : new boolean[]{true, false}) {
+                    CornerButton view = (CornerButton) mInflater.inflate (R.layout.benchmark_corner_button, null);
+                    view.edit ().text (makeText (textLength)).textSize (textSize).apply ();
+                    Map<String, Object> result = sResults.newResult ("CornerButton");
+                    result.put ("textLength", textLength);
+                    result.put ("textSize", textSize);
+                    result.put ("spec", exactly ? "exactly" : "wrap_content");
+                    result.put ("inflateNs", inflateNs);
+                    runFrames (view, exactly, result);
+                }
+            }
+        }
+    }
+
+    // 作为对照的系统TextView，字号和库中的控件一样按像素设置
+    @Test
+    public void textView() {
+        long inflateNs = inflate (R.layout.benchmark_text_view);
+        for (int textLength : TEXT_LENGTHS) {
+            for (int textSize : TEXT_SIZES) {
+                for (boolean exactly : new boolean[]{true, false}) {
+                    TextView view = (TextView) mInflater.inflate (R.layout.benchmark_text_view, null);
+                    view.setText (makeText (textLength));
+                    view.setTextSize (TypedValue.COMPLEX_UNIT_PX, textSize);
+                    Map<String, Object> result = sResults.newResult ("TextView");
+                    result.put ("textLength", textLength);
+                    result.put ("textSize", textSize);
+                    result.put ("spec", exactly ? "exactly" : "wrap_content");
+                    result.put ("inflateNs", inflateNs);
+                    runFrames (view, exactly, result);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void menuView() {
+        for (int itemCount : ITEM_COUNTS) {
+            // MenuView的inflate包括创建所有子View
+            long[] inflateTimes = new long[INFLATE_ITERATIONS];
+            MenuView view = null;
+            for (int i = 0; i < INFLATE_ITERATIONS; i++) {
+                long start = System.nanoTime ();
+                view = (MenuView) mInflater.inflate (R.layout.benchmark_menu_view, null);
+                view.setAdapter (new TextAdapter (itemCount));
+                inflateTimes[i] = System.nanoTime () - start;
+            }
+            for (boolean exactly : new boolean[]{true, false}) {
+                Map<String, Object> result = sResults.newResult ("MenuView");
+                result.put ("itemCount", itemCount);
+                result.put ("spec", exactly ? "exactly" : "wrap_content");
+                result.put ("inflateNs", median (inflateTimes));
+                runFrames (view, exactly, result);
+            }
+        }
+    }
+
+    // inflate的耗时，取中位数
+    private long inflate(int layoutId){
+        for (int i = 0; i < WARM_UP; i++) {
+            mInflater.inflate (layoutId, null);
+        }
+        long[] times = new long[INFLATE_ITERATIONS];
+        for (int i = 0; i < INFLATE_ITERATIONS; i++) {
+            long start = System.nanoTime ();
+            mInflater.inflate (layoutId, null);
+            times[i] = System.nanoTime () - start;
+        }
+        return median (times);
+    }
+
+    // 强制重新测量、布局、绘制，分别统计三个阶段的耗时
+    private void runFrames(View view, boolean exactly, Map<String, Object> result){
+        int mode = exactly ? MeasureSpec.EXACTLY : MeasureSpec.AT_MOST;
+        int widthMeasureSpec = MeasureSpec.makeMeasureSpec (PARENT_WIDTH, mode);
+        int heightMeasureSpec = MeasureSpec.makeMeasureSpec (PARENT_HEIGHT, mode);
+        view.measure (widthMeasureSpec, heightMeasureSpec);
+        Bitmap bitmap = Bitmap.createBitmap (Math.max (1, view.getMeasuredWidth ()),
+                Math.max (1, view.getMeasuredHeight ()), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas (bitmap);
+        long[] measureTimes = new long[ITERATIONS];
+        long[] layoutTimes = new long[ITERATIONS];
+        long[] drawTimes = new long[ITERATIONS];
+        for (int i = -WARM_UP; i < ITERATIONS; i++) {
+            view.forceLayout ();
+            long start = System.nanoTime ();
+            view.measure (widthMeasureSpec, heightMeasureSpec);
+            long measured = System.nanoTime ();
+            view.layout (0, 0, view.getMeasuredWidth (), view.getMeasuredHeight ());
+            long laidOut = System.nanoTime ();
+            view.draw (canvas);
+            long drawn = System.nanoTime ();
+            if(i >= 0){
+                measureTimes[i] = measured - start;
+                layoutTimes[i] = laidOut - measured;
+                drawTimes[i] = drawn - laidOut;
+            }
+        }
+        bitmap.recycle ();
+        result.put ("width", view.getMeasuredWidth ());
+        result.put ("height", view.getMeasuredHeight ());
+        result.put ("measureNs", median (measureTimes));
+        result.put ("layoutNs", median (layoutTimes));
+        result.put ("drawNs", median (drawTimes));
+    }
+
+    private static long median(long[] times){
+        long[] sorted = times.clone ();
+        Arrays.sort (sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static String makeText(int length){
+        StringBuilder builder = new StringBuilder (length);
+        for (int i = 0; i < length; i++) {
+            builder.append (TEXT_SOURCE.charAt (i % TEXT_SOURCE.length ()));
+        }
+        return builder.toString ();
+    }
+
+    private final class TextAdapter extends MenuView.Adapter {
+        private final int mCount;
+
+        TextAdapter(int count) {
+            mCount = count;
+        }
+
+        @Override
+        public View getView(int position, ViewGroup parent) {
+            TextView textView = new TextView (mContext);
+            textView.setText (makeText (8));
+            return textView;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.xiaogegechen.library;
+
+import java.util.BitSet;
+
+/**
+ * 按位置记录状态的BitSet在插入、删除、移动之后需要整体平移，这里统一处理
+ *
+ * @since v1.4.3
+ */
+final class BitSetUtils {
+
+    private BitSetUtils() {}
+
+    /**
+     * 在position处插入count个位，原来position及之后的位向后平移
+     * @param bits 位集合
+     * @param position 插入位置
+     * @param count 插入个数
+     * @param value 插入的位的值
+     */
+    static void insert(BitSet bits, int position, int count, boolean value){
+        int length = bits.length();
+        if(position < length){
+            BitSet tail = bits.get(position, length);
+            bits.clear(position, length);
+            for (int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1)) {
+                bits.set(position + count + i);
+            }
+        }
+        if(value){
+            bits.set(position, position + count);
+        }
+    }
+
+    /**
+     * 删除从position开始的count个位，之后的位向前平移
+     * @param bits 位集合
+     * @param position 删除位置
+     * @param count 删除个数
+     */
+    static void remove(BitSet bits, int position, int count){
+        int length = bits.length();
+        if(position >= length){
+            return;
+        }
+        BitSet tail = position + count < length ? bits.get(position + count, length) : new BitSet();
+        bits.clear(position, length);
+        for (int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1)) {
+            bits.set(position + i);
+        }
+    }
+
+    /**
+     * 把from处的位移动到to处，中间的位跟着平移
+     * @param bits 位集合
+     * @param from 原位置
+     * @param to 新位置
+     */
+    static void move(BitSet bits, int from, int to){
+        boolean value = bits.get(from);
+        remove(bits, from, 1);
+        insert(bits, to, 1, value);
+    }
+
+    /**
+     * 转换成long数组，用来写进Parcel。BitSet#toLongArray()需要API 19
+     * @param bits 位集合
+     * @return 每64位一个long
+     *
+     * @since v1.6.3
+     */
+    static long[] toLongArray(BitSet bits){
+        long[] words = new long[(bits.length() + 63) / 64];
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            words[i >> 6] |= 1L << i;
+        }
+        return words;
+    }
+
+    /**
+     * 从{@link #toLongArray(BitSet)}得到的数组恢复，只保留前count位
+     * @param words 每64位一个long
+     * @param count 位数
+     * @param out 结果，原来的位会被清空
+     *
+     * @since v1.6.3
+     */
+    static void fromLongArray(long[] words, int count, BitSet out){
+        out.clear();
+        for (int i = 0; i < count && (i >> 6) < words.length; i++) {
+            if((words[i >> 6] & (1L << i)) != 0){
+                out.set(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.xiaogegechen.library;
+
+import android.graphics.Paint;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Layout;
+import android.text.PrecomputedText;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+/**
+ * ColorTextView多行模式使用的文字布局，缓存StaticLayout，只有文字、宽度、字号、最大行数、省略方式或者对齐方式改变时才重新创建。
+ * 文字可以在后台线程预先处理，API 28及以上使用PrecomputedText，以下直接在后台创建StaticLayout，主线程不再做断行。
+ * 除了{@link #build}和{@link #precompute}，所有方法都只能在主线程调用
+ *
+ * @since v1.5.7
+ */
+final class ColorTextLayout {
+
+    /**
+     * 后台处理完成的回调，在主线程回调
+     */
+    interface Callback {
+        void onPrecomputed(Precomputed precomputed);
+    }
+
+    /**
+     * 后台处理文字的结果
+     */
+    static final class Precomputed {
+        private final String mText;
+        // API 28及以上是PrecomputedText，以下就是文字本身
+        private final CharSequence mSource;
+        private final float mTextSize;
+        // 后台创建的布局，不知道宽度时为null
+        private final StaticLayout mLayout;
+        private final int mWidth;
+        private final int mMaxLines;
+        private final TextUtils.TruncateAt mEllipsize;
+        private final Layout.Alignment mAlignment;
+
+        private Precomputed(String text, CharSequence source, float textSize, StaticLayout layout, int width,
+                            int maxLines, TextUtils.TruncateAt ellipsize, Layout.Alignment alignment) {
+            mText = text;
+            mSource = source;
+            mTextSize = textSize;
+            mLayout = layout;
+            mWidth = width;
+            mMaxLines = maxLines;
+            mEllipsize = ellipsize;
+            mAlignment = alignment;
+        }
+    }
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private final TextPaint mPaint;
+    private String mText = "";
+    // 创建布局使用的文字，有预处理结果时是PrecomputedText
+    private CharSequence mSource = "";
+    // 文字不换行时的宽度，小于0表示还没有计算
+    private float mDesiredWidth = -1;
+
+    private StaticLayout mLayout;
+    // 创建mLayout时的参数
+    private int mWidth;
+    private int mMaxLines;
+    private TextUtils.TruncateAt mEllipsize;
+    private Layout.Alignment mAlignment;
+
+    ColorTextLayout() {
+        mPaint = new TextPaint();
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setAntiAlias(true);
+    }
+
+    /**
+     * @return 创建布局使用的画笔
+     */
+    TextPaint getPaint() {
+        return mPaint;
+    }
+
+    void setText(String text){
+        if(text == null){
+            text = "";
+        }
+        if(text.equals(mText)){
+            return;
+        }
+        mText = text;
+        mSource = text;
+        mDesiredWidth = -1;
+        mLayout = null;
+    }
+
+    void setTextSize(float textSize){
+        if(Float.compare(mPaint.getTextSize(), textSize) == 0){
+            return;
+        }
+        mPaint.setTextSize(textSize);
+        // 预处理的结果和字号有关，一起作废
+        mSource = mText;
+        mDesiredWidth = -1;
+        mLayout = null;
+    }
+
+    /**
+     * 使用后台处理的结果，字号已经改变时只使用文字
+     */
+    void setPrecomputed(Precomputed precomputed){
+        setText(precomputed.mText);
+        if(Float.compare(mPaint.getTextSize(), precomputed.mTextSize) != 0){
+            return;
+        }
+        mSource = precomputed.mSource;
+        mDesiredWidth = -1;
+        mLayout = precomputed.mLayout;
+        if(mLayout != null){
+            mWidth = precomputed.mWidth;
+            mMaxLines = precomputed.mMaxLines;
+            mEllipsize = precomputed.mEllipsize;
+            mAlignment = precomputed.mAlignment;
+        }
+    }
+
+    /**
+     * @return 文字不换行时的宽度
+     */
+    int getDesiredWidth(){
+        if(mDesiredWidth < 0){
+            mDesiredWidth = Layout.getDesiredWidth(mSource, mPaint);
+        }
+        return (int) Math.ceil(mDesiredWidth);
+    }
+
+    /**
+     * @return 上一次创建布局时的宽度，还没有创建时为0
+     */
+    int getWidth(){
+        return mLayout == null ? 0 : mWidth;
+    }
+
+    /**
+     * 拿到布局，参数和上一次相同时直接复用
+     */
+    StaticLayout obtain(int width, int maxLines, TextUtils.TruncateAt ellipsize, Layout.Alignment alignment){
+        width = Math.max(0, width);
+        if(mLayout == null || mWidth != width || mMaxLines != maxLines || mEllipsize != ellipsize || mAlignment != alignment){
+            mLayout = build(mSource, mPaint, width, maxLines, ellipsize, alignment);
+            mWidth = width;
+            mMaxLines = maxLines;
+            mEllipsize = ellipsize;
+            mAlignment = alignment;
+        }
+        return mLayout;
+    }
+
+    /**
+     * 布局中需要显示的高度，API 23以下StaticLayout不支持最大行数，超过的行不计算在内
+     */
+    static int getVisibleHeight(StaticLayout layout, int maxLines){
+        return layout.getLineTop(Math.min(layout.getLineCount(), maxLines));
+    }
+
+    /**
+     * 创建布局，可以在任意线程调用。API 23以下不支持最大行数，超过的行在绘制时裁掉，也不显示省略号
+     */
+    static StaticLayout build(CharSequence source, TextPaint paint, int width, int maxLines,
+                              TextUtils.TruncateAt ellipsize, Layout.Alignment alignment){
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.M){
+            return StaticLayout.Builder.obtain(source, 0, source.length(), paint, width)
+                    .setAlignment(alignment)
+                    .setIncludePad(false)
+                    .setMaxLines(maxLines)
+                    .setEllipsize(ellipsize)
+                    .build();
+        }
+        return new StaticLayout(source, 0, source.length(), paint, width, alignment, 1f, 0f, false, ellipsize, width);
+    }
+
+    /**
+     * 在当前线程处理文字，API 28及以上创建PrecomputedText，宽度大于0时同时创建布局。一般在后台线程调用
+     * @param paint 画笔，不能和主线程共用
+     */
+    static Precomputed precompute(String text, TextPaint paint, int width, int maxLines,
+                                  TextUtils.TruncateAt ellipsize, Layout.Alignment alignment){
+        if(text == null){
+            text = "";
+        }
+        CharSequence source = text;
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.P){
+            source = PrecomputedText.create(text, new PrecomputedText.Params.Builder(paint).build());
+        }
+        StaticLayout layout = width > 0 ? build(source, paint, width, maxLines, ellipsize, alignment) : null;
+        return new Precomputed(text, source, paint.getTextSize(), layout, width, maxLines, ellipsize, alignment);
+    }
+
+    /**
+     * 在后台线程处理文字，完成后在主线程回调
+     */
+    static void precomputeAsync(final String text, final TextPaint paint, final int width, final int maxLines,
+                                final TextUtils.TruncateAt ellipsize, final Layout.Alignment alignment, final Callback callback){
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Precomputed precomputed = precompute(text, paint, width, maxLines, ellipsize, alignment);
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onPrecomputed(precomputed);
+                    }
+                });
+            }
+        });
+    }
+}
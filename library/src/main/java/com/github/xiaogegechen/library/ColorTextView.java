@@ -4,13 +4,25 @@ import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.LinearGradient;
+import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.Shader;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
+import android.view.animation.AnimationUtils;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 
 /**
  * 带渐变色的文字,当设置了padding时，如果尺寸不够显示文字
@@ -18,12 +30,49 @@ import android.view.View;
  */
 public class ColorTextView extends View {
     private static final String TAG = "ColorTextView";
+    // Trace区间名
+    private static final String TRACE_MEASURE = "ColorTextView#onMeasure";
+    private static final String TRACE_DRAW = "ColorTextView#onDraw";
 
     /**
      * 默认字体大小为300px
      */
     private static final int TEXT_SIZE_DEFAULT = 300;
     private static final int GRAVITY_DEFAULT = 0x11;
+    private static final int GRADIENT_ANIMATION_DURATION_DEFAULT = 1500;
+    private static final int MAX_LINES_DEFAULT = Integer.MAX_VALUE;
+    /**
+     * 字号不小于这个值时把文字转换成路径绘制，字形太大时放不进字形缓存，每一帧直接绘制文字很慢
+     */
+    private static final int LARGE_TEXT_THRESHOLD_DEFAULT = 256;
+    // 和xml中text_ellipsize的取值对应
+    private static final int ELLIPSIZE_NONE = 0;
+    private static final int ELLIPSIZE_START = 1;
+    private static final int ELLIPSIZE_MIDDLE = 2;
+    private static final int ELLIPSIZE_END = 3;
+
+    /**
+     * 渐变动画
+     */
+    @IntDef({
+            GRADIENT_ANIMATION_NONE,
+            GRADIENT_ANIMATION_TRANSLATE,
+            GRADIENT_ANIMATION_ROTATE
+    })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface GradientAnimation {}
+    /**
+     * 渐变不动
+     */
+    public static final int GRADIENT_ANIMATION_NONE = 0;
+    /**
+     * 渐变沿着渐变方向循环平移，形成扫光效果
+     */
+    public static final int GRADIENT_ANIMATION_TRANSLATE = 1;
+    /**
+     * 渐变绕文字中心循环旋转
+     */
+    public static final int GRADIENT_ANIMATION_ROTATE = 2;
 
     private Paint mTextPaint;
     private String mText;
@@ -33,6 +82,34 @@ public class ColorTextView extends View {
     private int mGravity;
     // 表示文字范围的矩形
     private Rect mTextBound;
+    // 字体度量，复用避免每次绘制都创建
+    private Paint.FontMetrics mFontMetrics;
+    // 渐变着色器，位置和颜色不变时直接复用
+    private final GradientShaderCache.Slot mShaderSlot = new GradientShaderCache.Slot ();
+    // 渐变动画
+    private int mGradientAnimation;
+    private int mGradientAnimationDuration;
+    // 渐变动画开始的时间，动画进度由当前时间算出，不需要动画对象
+    private long mGradientAnimationStartTime;
+    // 渐变动画使用的着色器不能共享，每一帧只修改它的变换矩阵
+    private final GradientShaderCache.Slot mAnimatedShaderSlot = new GradientShaderCache.Slot (false);
+    private final Matrix mShaderMatrix = new Matrix ();
+    // 多行模式，文字按照宽度换行，使用缓存的StaticLayout绘制
+    private boolean mMultiLine;
+    private int mMaxLines;
+    private TextUtils.TruncateAt mEllipsize;
+    private final ColorTextLayout mTextLayout = new ColorTextLayout ();
+    // 每次设置文字都会加一，过期的后台处理结果直接丢弃
+    private int mTextRequestId = 0;
+    // 大字号模式：字号不小于这个值时绘制缓存的文字路径，不大于0时不使用
+    private int mLargeTextThreshold;
+    // 缓存的文字路径
+    private final Path mTextPath = new Path ();
+    // 生成mTextPath时的文字、字号和位置
+    private String mTextPathText;
+    private float mTextPathSize = -1;
+    private float mTextPathX;
+    private float mTextPathY;
 
     // 记录测量模式，如果是精确模式，那么所有的动态更改都
     // 不需要重新布局的，如果不是精确模式，那么有的属性动态更改之后
@@ -41,6 +118,9 @@ public class ColorTextView extends View {
     private boolean mIsWidthExactly = false;
     private boolean mIsHeightExactly = false;
 
+    // 批量修改属性使用，复用同一个对象
+    private Editor mEditor;
+
     public ColorTextView(Context context) {
         this (context, null);
     }
@@ -59,7 +139,26 @@ public class ColorTextView extends View {
         mText = typedArray.getString (R.styleable.ColorTextView_text);
         mTextSize = typedArray.getDimensionPixelSize (R.styleable.ColorTextView_text_size, TEXT_SIZE_DEFAULT);
         mGravity = typedArray.getInt(R.styleable.ColorTextView_text_gravity, GRAVITY_DEFAULT);
+        mGradientAnimation = typedArray.getInt (R.styleable.ColorTextView_gradient_animation, GRADIENT_ANIMATION_NONE);
+        mGradientAnimationDuration = typedArray.getInt (R.styleable.ColorTextView_gradient_animation_duration, GRADIENT_ANIMATION_DURATION_DEFAULT);
+        mMultiLine = typedArray.getBoolean (R.styleable.ColorTextView_multi_line, false);
+        mMaxLines = typedArray.getInt (R.styleable.ColorTextView_max_lines, MAX_LINES_DEFAULT);
+        int ellipsize = typedArray.getInt (R.styleable.ColorTextView_text_ellipsize, ELLIPSIZE_NONE);
+        mLargeTextThreshold = typedArray.getDimensionPixelSize (R.styleable.ColorTextView_large_text_threshold, LARGE_TEXT_THRESHOLD_DEFAULT);
         typedArray.recycle ();
+        if(mMaxLines <= 0){
+            mMaxLines = MAX_LINES_DEFAULT;
+        }
+        if(ellipsize == ELLIPSIZE_START){
+            mEllipsize = TextUtils.TruncateAt.START;
+        }else if(ellipsize == ELLIPSIZE_MIDDLE){
+            mEllipsize = TextUtils.TruncateAt.MIDDLE;
+        }else if(ellipsize == ELLIPSIZE_END){
+            mEllipsize = TextUtils.TruncateAt.END;
+        }
+        if(mGradientAnimationDuration <= 0){
+            mGradientAnimationDuration = GRADIENT_ANIMATION_DURATION_DEFAULT;
+        }
 
         // 初始化
         mTextPaint = new Paint ();
@@ -69,10 +168,30 @@ public class ColorTextView extends View {
         mTextPaint.setTextSize (mTextSize);
 
         mTextBound = new Rect ();
+        mFontMetrics = new Paint.FontMetrics ();
+
+        mTextLayout.setText (mText);
+        mTextLayout.setTextSize (mTextSize);
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        ViewMetrics.beginSection (TRACE_MEASURE);
+        try {
+            ViewMetrics.record (ViewMetrics.VIEW_COLOR_TEXT_VIEW, ViewMetrics.EVENT_MEASURE);
+            measureContent (widthMeasureSpec, heightMeasureSpec);
+        } finally {
+            ViewMetrics.endSection ();
+        }
+    }
+
+    @Override
+    public void requestLayout() {
+        ViewMetrics.record (ViewMetrics.VIEW_COLOR_TEXT_VIEW, ViewMetrics.EVENT_REQUEST_LAYOUT);
+        super.requestLayout ();
+    }
+
+    private void measureContent(int widthMeasureSpec, int heightMeasureSpec){
         if(Consts.COLOR_TEXT_VIEW_DEBUG)Log.d(TAG, "perform measure");
         super.onMeasure (widthMeasureSpec, heightMeasureSpec);
         int widthMode = MeasureSpec.getMode (widthMeasureSpec);
@@ -80,7 +199,12 @@ public class ColorTextView extends View {
         int heightMode = MeasureSpec.getMode (heightMeasureSpec);
         int heightSize = MeasureSpec.getSize (heightMeasureSpec);
 
-        mTextPaint.getTextBounds (mText, 0, mText.length (), mTextBound);
+        if(mMultiLine){
+            measureMultiLine (widthMode, widthSize, heightMode, heightSize);
+            return;
+        }
+
+        measureText (null);
         if(Consts.COLOR_TEXT_VIEW_DEBUG)Log.d (TAG, "textBound is: " + mTextBound);
 
         // 如果是精确测量模式，就不需要下面的操作
@@ -120,15 +244,126 @@ public class ColorTextView extends View {
         setMeasuredDimension(width, height);
     }
 
+    // 多行模式的测量，宽度不确定时按照文字不换行的宽度测量，不超过父布局给的宽度
+    private void measureMultiLine(int widthMode, int widthSize, int heightMode, int heightSize){
+        int paddingHorizontal = getPaddingLeft () + getPaddingRight ();
+        int paddingVertical = getPaddingTop () + getPaddingBottom ();
+        mIsWidthExactly = widthMode == MeasureSpec.EXACTLY;
+        mIsHeightExactly = heightMode == MeasureSpec.EXACTLY;
+        mIsSizeExactly = mIsWidthExactly && mIsHeightExactly;
+
+        int width;
+        if(mIsWidthExactly){
+            width = widthSize;
+        }else{
+            width = mTextLayout.getDesiredWidth () + paddingHorizontal;
+            if(widthMode == MeasureSpec.AT_MOST){
+                width = Math.min (width, widthSize);
+            }
+        }
+        int height;
+        if(mIsHeightExactly){
+            height = heightSize;
+        }else{
+            StaticLayout layout = obtainLayout (width - paddingHorizontal);
+            height = ColorTextLayout.getVisibleHeight (layout, mMaxLines) + paddingVertical;
+            if(heightMode == MeasureSpec.AT_MOST){
+                height = Math.min (height, heightSize);
+            }
+        }
+        setMeasuredDimension (width, height);
+    }
+
+    // 按照宽度拿到布局，参数不变时复用上一次的
+    private StaticLayout obtainLayout(int width){
+        return mTextLayout.obtain (width, mMaxLines, mEllipsize, getLayoutAlignment ());
+    }
+
+    // 水平方向的gravity对应的每一行的对齐方式
+    private Layout.Alignment getLayoutAlignment(){
+        final int horizontalGravity = mGravity & Gravity.HORIZONTAL_GRAVITY_MASK;
+        if(horizontalGravity == Gravity.LEFT){
+            return Layout.Alignment.ALIGN_NORMAL;
+        }else if(horizontalGravity == Gravity.RIGHT){
+            return Layout.Alignment.ALIGN_OPPOSITE;
+        }else{
+            return Layout.Alignment.ALIGN_CENTER;
+        }
+    }
+
+    // 测量文字范围，同时统计缓存是否命中
+    private void measureText(Paint.FontMetrics outMetrics){
+        boolean hit = TextMeasureCache.lookup (mTextPaint, mText, mTextBound, outMetrics);
+        ViewMetrics.recordCache (ViewMetrics.VIEW_COLOR_TEXT_VIEW, hit);
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
+        ViewMetrics.beginSection (TRACE_DRAW);
+        try {
+            ViewMetrics.record (ViewMetrics.VIEW_COLOR_TEXT_VIEW, ViewMetrics.EVENT_DRAW);
+            drawContent (canvas);
+        } finally {
+            ViewMetrics.endSection ();
+        }
+    }
+
+    private void drawContent(Canvas canvas){
         if(Consts.COLOR_TEXT_VIEW_DEBUG)Log.d(TAG, "perform draw");
         super.onDraw (canvas);
         if(Consts.COLOR_TEXT_VIEW_DEBUG)Log.d (TAG, "width is: " + getWidth () + ", height is: " + getHeight ());
 
+        boolean drawn = mMultiLine ? drawMultiLine (canvas) : drawSingleLine (canvas);
+
+        // 只有正在显示时才请求下一帧，离开窗口或者不可见时不再重绘，动画自然暂停
+        if(drawn && mGradientAnimation != GRADIENT_ANIMATION_NONE && getWindowVisibility () == VISIBLE && isShown ()){
+            postInvalidateOnAnimation ();
+        }
+    }
+
+    // 多行模式的绘制，渐变覆盖整个文字块
+    private boolean drawMultiLine(Canvas canvas){
+        int width = getWidth ();
+        int height = getHeight ();
+        int paddingLeft = getPaddingLeft ();
+        int paddingTop = getPaddingTop ();
+        int paddingBottom = getPaddingBottom ();
+        int layoutWidth = width - paddingLeft - getPaddingRight ();
+        if(layoutWidth <= 0){
+            return false;
+        }
+        // 不是精确模式时宽度就是测量时的宽度，布局会直接复用
+        StaticLayout layout = obtainLayout (layoutWidth);
+        int blockHeight = ColorTextLayout.getVisibleHeight (layout, mMaxLines);
+
+        float top;
+        final int verticalGravity = mGravity & Gravity.VERTICAL_GRAVITY_MASK;
+        if(verticalGravity == Gravity.TOP){
+            top = paddingTop;
+        }else if(verticalGravity == Gravity.BOTTOM){
+            top = height - paddingBottom - blockHeight;
+        }else{ // verticalGravity == Gravity.CENTER_VERTICAL
+            top = (float) ((height - paddingTop - paddingBottom - blockHeight) * 1.0 / 2) + paddingTop;
+        }
+
+        // 后台创建的布局有自己的画笔，着色器设置到布局使用的画笔上
+        TextPaint paint = layout.getPaint ();
+        paint.setShader (obtainShader (0, 0, layoutWidth, blockHeight));
+
+        int saveCount = canvas.save ();
+        canvas.translate (paddingLeft, top);
+        // 裁掉超过最大行数的部分
+        canvas.clipRect (0, 0, layoutWidth, blockHeight);
+        layout.draw (canvas);
+        canvas.restoreToCount (saveCount);
+        return true;
+    }
+
+    // 单行模式的绘制
+    private boolean drawSingleLine(Canvas canvas){
         // 重新测量文本范围，因为如果是动态更改而且还是精确测量模式
-        // 那么不执行onMeasure()，也就没有测量新的文本范围
-        mTextPaint.getTextBounds (mText, 0, mText.length (), mTextBound);
+        // 那么不执行onMeasure()，也就没有测量新的文本范围。同时拿到字体度量，后面不再重复获取
+        measureText (mFontMetrics);
 
         int width = getWidth();
         int height = getHeight();
@@ -150,8 +385,8 @@ public class ColorTextView extends View {
         float y;
 
         // 如果不够显示，那就不显示，直接返回
-        if(mIsWidthExactly && width - paddingLeft - paddingRight < textWidth)return;
-        if(mIsHeightExactly && height - paddingTop - paddingBottom < textHeight)return;
+        if(mIsWidthExactly && width - paddingLeft - paddingRight < textWidth)return false;
+        if(mIsHeightExactly && height - paddingTop - paddingBottom < textHeight)return false;
 
         // 竖直方向
         final int verticalGravity = mGravity & Gravity.VERTICAL_GRAVITY_MASK;
@@ -159,23 +394,23 @@ public class ColorTextView extends View {
             top = paddingTop;
             bottom = paddingTop + textHeight;
             if(mIsHeightExactly){
-                y = (float) (height * 1.0 / 2) - (mTextPaint.getFontMetrics ().top + mTextPaint.getFontMetrics ().bottom) / 2 + (float) (((paddingTop - (height - paddingTop - textHeight)) * 1.0) / 2);
+                y = (float) (height * 1.0 / 2) - (mFontMetrics.top + mFontMetrics.bottom) / 2 + (float) (((paddingTop - (height - paddingTop - textHeight)) * 1.0) / 2);
             }else{
-                y = (float) (height * 1.0 / 2) - (mTextPaint.getFontMetrics ().top + mTextPaint.getFontMetrics ().bottom) / 2 + (float) (((paddingTop - (paddingBottom)) * 1.0) / 2);
+                y = (float) (height * 1.0 / 2) - (mFontMetrics.top + mFontMetrics.bottom) / 2 + (float) (((paddingTop - (paddingBottom)) * 1.0) / 2);
             }
         }else if(verticalGravity == Gravity.BOTTOM){
             top = height - paddingBottom - textHeight;
             bottom = height - textHeight;
             if(mIsHeightExactly){
-                y = (float) (height * 1.0 / 2) - (mTextPaint.getFontMetrics ().top + mTextPaint.getFontMetrics ().bottom) / 2 + (float) ((((height - paddingBottom - textHeight) - (paddingBottom)) * 1.0) / 2);
+                y = (float) (height * 1.0 / 2) - (mFontMetrics.top + mFontMetrics.bottom) / 2 + (float) ((((height - paddingBottom - textHeight) - (paddingBottom)) * 1.0) / 2);
             }else{
-                y = (float) (height * 1.0 / 2) - (mTextPaint.getFontMetrics ().top + mTextPaint.getFontMetrics ().bottom) / 2 + (float) (((paddingTop - (paddingBottom)) * 1.0) / 2);
+                y = (float) (height * 1.0 / 2) - (mFontMetrics.top + mFontMetrics.bottom) / 2 + (float) (((paddingTop - (paddingBottom)) * 1.0) / 2);
             }
         }else{ // verticalGravity == Gravity.CENTER_VERTICAL
             // 不考虑padding
             top = (float) ((height - textHeight) * 1.0 / 2);
             bottom = (float) ((height - textHeight) * 1.0 / 2) + textHeight;
-            y = (float) (height * 1.0 / 2) - (mTextPaint.getFontMetrics ().top + mTextPaint.getFontMetrics ().bottom) / 2;
+            y = (float) (height * 1.0 / 2) - (mFontMetrics.top + mFontMetrics.bottom) / 2;
         }
 
         // 水平方向
@@ -196,11 +431,131 @@ public class ColorTextView extends View {
         }
 
         if(Consts.COLOR_TEXT_VIEW_DEBUG)Log.d(TAG, "shader position, left is : " + left + ", right is : " + right + ", top is : " + top + ", bottom is : " + bottom);
-        LinearGradient gradient = new LinearGradient (left, top, right, bottom, mStartColor, mEndColor, Shader.TileMode.REPEAT);
-        mTextPaint.setShader (gradient);
+        mTextPaint.setShader (obtainShader (left, top, right, bottom));
 
         if(Consts.COLOR_TEXT_VIEW_DEBUG)Log.d(TAG, "text position, x is : " + x + ", y is : " + y);
-        canvas.drawText (mText, x, y, mTextPaint);
+        if(mLargeTextThreshold > 0 && mTextSize >= mLargeTextThreshold){
+            // 大字号直接填充缓存的路径，和drawText的位置一致
+            updateTextPath (x, y);
+            canvas.drawPath (mTextPath, mTextPaint);
+        }else{
+            canvas.drawText (mText, x, y, mTextPaint);
+        }
+        return true;
+    }
+
+    // 文字、字号或者位置改变之后重新生成文字路径。路径直接生成在绘制的位置上，不平移画布，着色器的坐标不受影响
+    private void updateTextPath(float x, float y){
+        String text = mText == null ? "" : mText;
+        if(mTextPathSize == mTextPaint.getTextSize () && mTextPathX == x && mTextPathY == y && text.equals (mTextPathText)){
+            ViewMetrics.recordCache (ViewMetrics.VIEW_COLOR_TEXT_VIEW, true);
+            return;
+        }
+        ViewMetrics.recordCache (ViewMetrics.VIEW_COLOR_TEXT_VIEW, false);
+        if(Consts.COLOR_TEXT_VIEW_DEBUG)Log.d(TAG, "rebuild text path");
+        mTextPath.reset ();
+        mTextPaint.getTextPath (text, 0, text.length (), x, y, mTextPath);
+        mTextPathText = text;
+        mTextPathSize = mTextPaint.getTextSize ();
+        mTextPathX = x;
+        mTextPathY = y;
+    }
+
+    // 拿到渐变着色器，有渐变动画时同时更新变换矩阵
+    private Shader obtainShader(float left, float top, float right, float bottom){
+        if(mGradientAnimation == GRADIENT_ANIMATION_NONE){
+            LinearGradient shader = mShaderSlot.get (left, top, right, bottom, mStartColor, mEndColor, Shader.TileMode.REPEAT);
+            ViewMetrics.recordCache (ViewMetrics.VIEW_COLOR_TEXT_VIEW, mShaderSlot.isLastHit ());
+            return shader;
+        }
+        // 镜像平铺，平移两个周期或者旋转一周都能首尾相接
+        LinearGradient shader = mAnimatedShaderSlot.get (left, top, right, bottom, mStartColor, mEndColor, Shader.TileMode.MIRROR);
+        ViewMetrics.recordCache (ViewMetrics.VIEW_COLOR_TEXT_VIEW, mAnimatedShaderSlot.isLastHit ());
+        ViewMetrics.record (ViewMetrics.VIEW_COLOR_TEXT_VIEW, ViewMetrics.EVENT_ANIMATION_FRAME);
+        updateShaderMatrix (left, top, right, bottom);
+        shader.setLocalMatrix (mShaderMatrix);
+        return shader;
+    }
+
+    // 根据当前时间算出渐变动画的进度，更新着色器的变换矩阵
+    private void updateShaderMatrix(float left, float top, float right, float bottom){
+        long elapsed = AnimationUtils.currentAnimationTimeMillis () - mGradientAnimationStartTime;
+        float fraction = (float) (elapsed % mGradientAnimationDuration) / mGradientAnimationDuration;
+        if(mGradientAnimation == GRADIENT_ANIMATION_TRANSLATE){
+            // 沿着渐变方向平移两个周期（正向一次、镜像一次）
+            mShaderMatrix.setTranslate (2 * fraction * (right - left), 2 * fraction * (bottom - top));
+        }else{
+            mShaderMatrix.setRotate (360 * fraction, (left + right) / 2, (top + bottom) / 2);
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged (visibility);
+        // 重新可见时继续渐变动画
+        if(visibility == VISIBLE && mGradientAnimation != GRADIENT_ANIMATION_NONE){
+            invalidate ();
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged (changedView, visibility);
+        // 父布局重新可见时继续渐变动画
+        if(visibility == VISIBLE && mGradientAnimation != GRADIENT_ANIMATION_NONE){
+            invalidate ();
+        }
+    }
+
+    /**
+     * 设置渐变动画，动画只在显示时运行，离开窗口或者不可见时自动暂停，每一帧不分配内存
+     * @param gradientAnimation 渐变动画，{@link #GRADIENT_ANIMATION_NONE}、{@link #GRADIENT_ANIMATION_TRANSLATE}
+     *                          或者{@link #GRADIENT_ANIMATION_ROTATE}
+     *
+     * @since v1.5.6
+     */
+    public void setGradientAnimation(@GradientAnimation int gradientAnimation) {
+        if(mGradientAnimation == gradientAnimation){
+            return;
+        }
+        mGradientAnimation = gradientAnimation;
+        mGradientAnimationStartTime = AnimationUtils.currentAnimationTimeMillis ();
+        invalidate ();
+    }
+
+    /**
+     * 拿到渐变动画
+     * @return 渐变动画
+     *
+     * @since v1.5.6
+     */
+    @GradientAnimation
+    public int getGradientAnimation() {
+        return mGradientAnimation;
+    }
+
+    /**
+     * 设置渐变动画一个周期的时长
+     * @param duration 时长，单位毫秒，大于0
+     *
+     * @since v1.5.6
+     */
+    public void setGradientAnimationDuration(int duration) {
+        if(duration <= 0){
+            throw new IllegalArgumentException ("duration must be positive, but is " + duration);
+        }
+        mGradientAnimationDuration = duration;
+        invalidate ();
+    }
+
+    /**
+     * 拿到渐变动画一个周期的时长
+     * @return 时长，单位毫秒
+     *
+     * @since v1.5.6
+     */
+    public int getGradientAnimationDuration() {
+        return mGradientAnimationDuration;
     }
 
     /**
@@ -209,6 +564,9 @@ public class ColorTextView extends View {
      */
     public void setText(String text) {
         mText = text;
+        // 之前在后台处理的文字作废
+        mTextRequestId++;
+        mTextLayout.setText (text);
         // 文字改变会改变view的尺寸，因此应该重新布局
         if(mIsSizeExactly){
             invalidate();
@@ -241,6 +599,8 @@ public class ColorTextView extends View {
      */
     public void setTextSize(int textSize){
         mTextSize = textSize;
+        mTextPaint.setTextSize (textSize);
+        mTextLayout.setTextSize (textSize);
         // 文字改变会改变view的尺寸，因此应该重新布局
         if(mIsSizeExactly){
             invalidate();
@@ -248,4 +608,246 @@ public class ColorTextView extends View {
             requestLayout();
         }
     }
+
+    /**
+     * 在后台线程处理文字之后再显示，API 28及以上在后台创建PrecomputedText，以下在后台按照当前宽度创建布局，
+     * 主线程不再做断行，适合多行模式下的长文字。处理完成之前显示原来的文字，期间再次设置文字时这次的结果作废。
+     * 单行模式下和{@link #setText(String)}相同
+     * @param text 文字
+     *
+     * @since v1.5.7
+     */
+    public void setTextAsync(final String text) {
+        if(!mMultiLine){
+            setText (text);
+            return;
+        }
+        final int requestId = ++mTextRequestId;
+        // 后台使用自己的画笔，不和主线程共用
+        TextPaint paint = new TextPaint (mTextLayout.getPaint ());
+        ColorTextLayout.precomputeAsync (text, paint, mTextLayout.getWidth (), mMaxLines, mEllipsize, getLayoutAlignment (), new ColorTextLayout.Callback() {
+            @Override
+            public void onPrecomputed(ColorTextLayout.Precomputed precomputed) {
+                // 处理期间又设置了别的文字
+                if(requestId != mTextRequestId){
+                    return;
+                }
+                mText = text;
+                mTextLayout.setPrecomputed (precomputed);
+                if(mIsSizeExactly){
+                    invalidate ();
+                }else{
+                    requestLayout ();
+                }
+            }
+        });
+    }
+
+    /**
+     * 开启或者关闭多行模式，开启之后文字按照宽度换行，支持最大行数和省略，渐变覆盖整个文字块
+     * @param multiLine 是否开启
+     *
+     * @since v1.5.7
+     */
+    public void setMultiLine(boolean multiLine) {
+        if(mMultiLine == multiLine){
+            return;
+        }
+        mMultiLine = multiLine;
+        requestLayout ();
+        invalidate ();
+    }
+
+    /**
+     * 是否开启了多行模式
+     * @return 是否开启
+     *
+     * @since v1.5.7
+     */
+    public boolean isMultiLine() {
+        return mMultiLine;
+    }
+
+    /**
+     * 设置多行模式下最多显示的行数，API 23以下超过的行直接裁掉，不显示省略号
+     * @param maxLines 最多显示的行数，不大于0时不限制
+     *
+     * @since v1.5.7
+     */
+    public void setMaxLines(int maxLines) {
+        mMaxLines = maxLines <= 0 ? MAX_LINES_DEFAULT : maxLines;
+        if(mIsSizeExactly){
+            invalidate ();
+        }else{
+            requestLayout ();
+        }
+    }
+
+    /**
+     * 拿到多行模式下最多显示的行数
+     * @return 最多显示的行数，不限制时为{@link Integer#MAX_VALUE}
+     *
+     * @since v1.5.7
+     */
+    public int getMaxLines() {
+        return mMaxLines;
+    }
+
+    /**
+     * 设置多行模式下超过最大行数时的省略方式
+     * @param ellipsize 省略方式，null表示不省略
+     *
+     * @since v1.5.7
+     */
+    public void setEllipsize(TextUtils.TruncateAt ellipsize) {
+        mEllipsize = ellipsize;
+        invalidate ();
+    }
+
+    /**
+     * 拿到多行模式下的省略方式
+     * @return 省略方式，不省略时为null
+     *
+     * @since v1.5.7
+     */
+    public TextUtils.TruncateAt getEllipsize() {
+        return mEllipsize;
+    }
+
+    /**
+     * 设置大字号模式的阈值。字号不小于阈值时，文字在文字、字号改变时转换成路径缓存起来，之后每一帧直接填充路径，
+     * 避免字形太大放不进字形缓存导致每一帧绘制都很慢。只对单行模式有效
+     * @param threshold 阈值，单位px，不大于0时不使用大字号模式
+     *
+     * @since v1.5.8
+     */
+    public void setLargeTextThreshold(int threshold) {
+        mLargeTextThreshold = threshold;
+        invalidate ();
+    }
+
+    /**
+     * 拿到大字号模式的阈值
+     * @return 阈值，单位px
+     *
+     * @since v1.5.8
+     */
+    public int getLargeTextThreshold() {
+        return mLargeTextThreshold;
+    }
+
+    /**
+     * 开始批量修改属性，修改完成后调用{@link Editor#apply()}，所有修改一次生效，最多只触发一次重新布局或者重绘。
+     * 适合在列表中复用时一次修改多个属性，例如：
+     * <pre>
+     *     colorTextView.edit ().text ("text").textSize (60).startColor (Color.RED).apply ();
+     * </pre>
+     * 同一个ColorTextView每次返回同一个对象，调用apply()之前不要再次调用edit()
+     * @return 编辑器
+     *
+     * @since v1.5.5
+     */
+    public Editor edit(){
+        if(mEditor == null){
+            mEditor = new Editor ();
+        }
+        mEditor.reset ();
+        return mEditor;
+    }
+
+    /**
+     * 批量修改属性的编辑器，通过{@link #edit()}拿到
+     *
+     * @since v1.5.5
+     */
+    public final class Editor {
+        // 每一位表示一个属性被修改过
+        private static final int FLAG_TEXT = 1;
+        private static final int FLAG_TEXT_SIZE = 1 << 1;
+        private static final int FLAG_START_COLOR = 1 << 2;
+        private static final int FLAG_END_COLOR = 1 << 3;
+        // 会改变尺寸的属性
+        private static final int FLAGS_SIZE = FLAG_TEXT | FLAG_TEXT_SIZE;
+
+        private int mFlags;
+        private String mText;
+        private int mTextSize;
+        private int mStartColor;
+        private int mEndColor;
+
+        private Editor() {}
+
+        private void reset(){
+            mFlags = 0;
+            mText = null;
+        }
+
+        /**
+         * @see ColorTextView#setText(String)
+         */
+        public Editor text(String text){
+            mText = text;
+            mFlags |= FLAG_TEXT;
+            return this;
+        }
+
+        /**
+         * @see ColorTextView#setTextSize(int)
+         */
+        public Editor textSize(int textSize){
+            mTextSize = textSize;
+            mFlags |= FLAG_TEXT_SIZE;
+            return this;
+        }
+
+        /**
+         * @see ColorTextView#setStartColor(int)
+         */
+        public Editor startColor(int startColor){
+            mStartColor = startColor;
+            mFlags |= FLAG_START_COLOR;
+            return this;
+        }
+
+        /**
+         * @see ColorTextView#setEndColor(int)
+         */
+        public Editor endColor(int endColor){
+            mEndColor = endColor;
+            mFlags |= FLAG_END_COLOR;
+            return this;
+        }
+
+        /**
+         * 让所有修改生效。尺寸可能改变并且不是精确测量模式时重新布局，否则只重绘，没有修改时什么也不做
+         */
+        public void apply(){
+            int flags = mFlags;
+            if(flags == 0){
+                return;
+            }
+            if((flags & FLAG_TEXT) != 0){
+                ColorTextView.this.mText = mText;
+                mTextRequestId++;
+                mTextLayout.setText (mText);
+            }
+            if((flags & FLAG_TEXT_SIZE) != 0){
+                ColorTextView.this.mTextSize = mTextSize;
+                mTextPaint.setTextSize (mTextSize);
+                mTextLayout.setTextSize (mTextSize);
+            }
+            if((flags & FLAG_START_COLOR) != 0){
+                ColorTextView.this.mStartColor = mStartColor;
+            }
+            if((flags & FLAG_END_COLOR) != 0){
+                ColorTextView.this.mEndColor = mEndColor;
+            }
+            reset ();
+            if((flags & FLAGS_SIZE) != 0 && !mIsSizeExactly){
+                requestLayout ();
+            }else{
+                invalidate ();
+            }
+        }
+    }
 }
@@ -1,12 +1,11 @@
 package com.github.xiaogegechen.library;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.LinearGradient;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PorterDuff;
@@ -14,6 +13,7 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Shader;
 import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -29,6 +29,9 @@ import androidx.annotation.DrawableRes;
 public class CornerButton extends View {
 
     private static final String TAG = "CornerButton";
+    // Trace区间名
+    private static final String TRACE_MEASURE = "CornerButton#onMeasure";
+    private static final String TRACE_DRAW = "CornerButton#onDraw";
 
     private static final int BORDER_WIDTH_DEFAULT = 0;
     private static final int TEXT_SIZE_DEFAULT = 40;
@@ -47,6 +50,19 @@ public class CornerButton extends View {
     private int mDistance;
     private int mInnerPaddingTop;
     private int mInnerPaddingBottom;
+    // 通过资源id设置图标时，解码完成之前显示的占位图
+    private Drawable mIconPlaceholder;
+    // 每次设置图标都会加一，过期的解码结果直接丢弃
+    private int mIconRequestId = 0;
+    // 通过资源id设置图标时记住资源id和解码时的目标高度，文字高度改变之后重新解码。通过Drawable设置图标时为0
+    private int mIconRes = 0;
+    private int mIconTargetHeight = 0;
+    // 快照模式：内容只绘制一次到位图中，之后每一帧直接绘制位图
+    private boolean mSnapshotEnabled;
+    private Bitmap mSnapshot;
+    private Canvas mSnapshotCanvas;
+    // 快照是否需要重新绘制
+    private boolean mSnapshotDirty = true;
 
     private Paint mTextPaint;
     private Paint mBgPaint;
@@ -59,6 +75,9 @@ public class CornerButton extends View {
     private boolean mIsWidthExactly = false;
     private boolean mIsHeightExactly = false;
 
+    // 批量修改属性使用，复用同一个对象
+    private Editor mEditor;
+
     public CornerButton(Context context) {
         this (context, null);
     }
@@ -82,7 +101,12 @@ public class CornerButton extends View {
         mDistance = a.getDimensionPixelSize (R.styleable.CornerButton_corner_button_distance, DISTANCE_DEFAULT);
         mInnerPaddingTop = a.getDimensionPixelSize(R.styleable.CornerButton_corner_button_padding_top, INNER_PADDING_TOP_DEFAULT);
         mInnerPaddingBottom = a.getDimensionPixelSize(R.styleable.CornerButton_corner_button_padding_bottom, INNER_PADDING_BOTTOM_DEFAULT);
+        mIconPlaceholder = a.getDrawable (R.styleable.CornerButton_corner_button_icon_placeholder);
+        mSnapshotEnabled = a.getBoolean (R.styleable.CornerButton_corner_button_snapshot, false);
         a.recycle ();
+        if(mIconPlaceholder == null){
+            mIconPlaceholder = new ColorDrawable (Color.TRANSPARENT);
+        }
 
         // 可点击
         setClickable (true);
@@ -112,15 +136,33 @@ public class CornerButton extends View {
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        ViewMetrics.beginSection (TRACE_MEASURE);
+        try {
+            ViewMetrics.record (ViewMetrics.VIEW_CORNER_BUTTON, ViewMetrics.EVENT_MEASURE);
+            measureContent (widthMeasureSpec, heightMeasureSpec);
+        } finally {
+            ViewMetrics.endSection ();
+        }
+    }
+
+    @Override
+    public void requestLayout() {
+        ViewMetrics.record (ViewMetrics.VIEW_CORNER_BUTTON, ViewMetrics.EVENT_REQUEST_LAYOUT);
+        super.requestLayout ();
+    }
+
+    private void measureContent(int widthMeasureSpec, int heightMeasureSpec){
         if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "perform measure");
         super.onMeasure (widthMeasureSpec, heightMeasureSpec);
         int widthMode = MeasureSpec.getMode (widthMeasureSpec);
         int widthSize = MeasureSpec.getSize (widthMeasureSpec);
         int heightMode = MeasureSpec.getMode (heightMeasureSpec);
         int heightSize = MeasureSpec.getSize (heightMeasureSpec);
+        // 测量模式可能改变，内容是否显示需要重新确定
+        mGeometryDirty = true;
 
         //测量文字
-        mTextPaint.getTextBounds (mText, 0, mText.length (), mTextBound);
+        measureText (null);
 
         // 如果是精确测量模式，就不需要下面的操作
         if(widthMode == MeasureSpec.EXACTLY && heightMode == MeasureSpec.EXACTLY){
@@ -146,13 +188,8 @@ public class CornerButton extends View {
         // 文字宽高
         int textHeight = mTextBound.height ();
         int textWidth = mTextBound.width ();
-        // 图标原始宽高
-        int iconWidth = mIcon.getIntrinsicWidth();
-        int iconHeight = mIcon.getIntrinsicHeight ();
-        // 缩放比
-        float scale = (float) (textHeight * 1.0 / iconHeight);
-        // 图标宽高
-        iconWidth = (int) (iconWidth * scale);
+        // 图标宽
+        int iconWidth = getScaledIconWidth (textHeight);
         // 内容宽
         int contentWidth = textWidth + iconWidth + mDistance;
 
@@ -174,24 +211,65 @@ public class CornerButton extends View {
             mIsWidthExactly = false;
             width = contentWidth + (textHeight + mInnerPaddingBottom + mInnerPaddingTop) + paddingLeft + paddingRight;
         }
-        Log.d(TAG, "view size, width is : " + width + ", height is : " + height);
+        if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "view size, width is : " + width + ", height is : " + height);
         setMeasuredDimension(width, height);
     }
 
     private Path mBorderPath;
     private RectF mLeftRectF;
     private RectF mRightRectF;
-    private LinearGradient mBgLinearGradient;
+    // 背景的渐变着色器，位置和颜色不变时直接复用
+    private final GradientShaderCache.Slot mBgShaderSlot = new GradientShaderCache.Slot ();
     private Rect mTextBound;
+    // 字体度量，复用避免每次绘制都创建
+    private Paint.FontMetrics mFontMetrics = new Paint.FontMetrics ();
+
+    // 绘制用到的几何信息，只在尺寸、padding、文字、图标、间距改变之后重新计算，onDraw()只负责绘制
+    private boolean mGeometryDirty = true;
+    // 着色器的顶点坐标
+    private float mShapeLeft;
+    private float mShapeTop;
+    private float mShapeRight;
+    private float mShapeBottom;
+    // 背景是否是圆形，以及圆形的圆心和半径
+    private boolean mIsCircle;
+    private float mCircleCenterX;
+    private float mCircleCenterY;
+    private float mCircleRadius;
+    // 内容是否显示得下
+    private boolean mIsContentVisible;
+    // 绘制的文字位置, 横坐标是文本中点,纵坐标是文本基线
+    private float mTextPositionX;
+    private float mTextPositionY;
 
     @Override
-    protected void onDraw(Canvas canvas) {
-        if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "perform draw");
-        super.onDraw (canvas);
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged (w, h, oldw, oldh);
+        mGeometryDirty = true;
+    }
 
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding (left, top, right, bottom);
+        mGeometryDirty = true;
+    }
+
+    @Override
+    public void setPaddingRelative(int start, int top, int end, int bottom) {
+        super.setPaddingRelative (start, top, end, bottom);
+        mGeometryDirty = true;
+    }
+
+    /**
+     * 计算背景、边框、文字和图标的位置，结果缓存起来，之后的每一帧直接使用
+     *
+     * @since v1.5.1
+     */
+    private void updateGeometry(){
+        mGeometryDirty = false;
         // 重新测量文本范围，因为如果是动态更改而且还是精确测量模式
         // 那么不执行onMeasure()，也就没有测量新的文本范围
-        mTextPaint.getTextBounds (mText, 0, mText.length (), mTextBound);
+        measureText (mFontMetrics);
 
         // 宽高和内边距
         int width = getWidth ();
@@ -208,17 +286,19 @@ public class CornerButton extends View {
         float right = width - (float) ((paddingTop + paddingBottom) * 1.0 / 2);
         float top = (float) ((paddingTop + paddingBottom) * 1.0 / 2);
         float bottom = height - (float) ((paddingTop + paddingBottom) * 1.0 / 2);
+        mShapeLeft = left;
+        mShapeRight = right;
+        mShapeTop = top;
+        mShapeBottom = bottom;
 
-        // (1)画背景
-        if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "draw background");
         // 定位圆角button的位置
-        if (mBgLinearGradient == null) {
-            mBgLinearGradient = new LinearGradient (left, top, right, bottom, mStartColor, mEndColor, Shader.TileMode.REPEAT);
-        }
-        mBgPaint.setShader (mBgLinearGradient);
-        if(realWidth <= realHeight){
+        mIsCircle = realWidth <= realHeight;
+        mBorderPath.reset ();
+        if(mIsCircle){
             // 背景是圆形
-            canvas.drawCircle ((float) ((left + right) * 1.0 / 2), (float) ((top + bottom) * 1.0 / 2), (float) (realWidth * 1.0 / 2), mBgPaint);
+            mCircleCenterX = (float) ((left + right) * 1.0 / 2);
+            mCircleCenterY = (float) ((top + bottom) * 1.0 / 2);
+            mCircleRadius = (float) (realWidth * 1.0 / 2);
         } else {
             // 背景是圆角矩形
             float r = (float) (realHeight * 1.0 / 2);
@@ -229,93 +309,233 @@ public class CornerButton extends View {
             mBorderPath.arcTo (mLeftRectF, 90, 180, false);
             mBorderPath.lineTo (right - r , top);
             mBorderPath.arcTo (mRightRectF, 270, 180, false);
+        }
+
+        // 文字、图标、内容宽高
+        int textHeight = mTextBound.height ();
+        int textWidth = mTextBound.width ();
+        // 为了保证文字和图标等高，需要对图标缩放
+        int iconHeight = textHeight;
+        int iconWidth = getScaledIconWidth (textHeight);
+        int contentWidth = textWidth + iconWidth + mDistance;
+
+        // 如果圆角button装不下文字和图标，那就不显示内容
+        // 这种情况只会发生在使用者指定了宽高的情况下，没指定的情况下
+        // 不会发生
+        mIsContentVisible = !(mIsWidthExactly && contentWidth > realWidth) && !(mIsHeightExactly && textHeight > realHeight);
+        if(!mIsContentVisible){
+            return;
+        }
+
+        // 确定文字位置
+        mTextPositionX = (float) ((left + right + textWidth - contentWidth) * 1.0 / 2);
+        mTextPositionY = top + (float)(realHeight * 1.0 / 2) - (mFontMetrics.top + mFontMetrics.bottom) / 2 + (float) (((mInnerPaddingTop - mInnerPaddingBottom) * 1.0) / 2);
+
+        // 确定图标位置
+        int iconLeft = (int) (mTextPositionX + (textWidth * 1.0) / 2 + mDistance);
+        int iconTop = (int) (top + mInnerPaddingTop);
+        mIcon.setBounds (iconLeft, iconTop, iconLeft + iconWidth, iconTop + iconHeight);
+    }
+
+    /**
+     * 图标缩放到和文字等高之后的宽，没有固有尺寸的图标（比如占位图）按照正方形处理
+     * @param textHeight 文字高度
+     * @return 图标的宽
+     */
+    private int getScaledIconWidth(int textHeight){
+        int iconWidth = mIcon.getIntrinsicWidth();
+        int iconHeight = mIcon.getIntrinsicHeight ();
+        if(iconWidth <= 0 || iconHeight <= 0){
+            return textHeight;
+        }
+        return (int) (iconWidth * (float) (textHeight * 1.0 / iconHeight));
+    }
+
+    // 测量文字范围，同时统计缓存是否命中
+    private void measureText(Paint.FontMetrics outMetrics){
+        boolean hit = TextMeasureCache.lookup (mTextPaint, mText, mTextBound, outMetrics);
+        ViewMetrics.recordCache (ViewMetrics.VIEW_CORNER_BUTTON, hit);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        ViewMetrics.beginSection (TRACE_DRAW);
+        try {
+            ViewMetrics.record (ViewMetrics.VIEW_CORNER_BUTTON, ViewMetrics.EVENT_DRAW);
+            drawFrame (canvas);
+        } finally {
+            ViewMetrics.endSection ();
+        }
+    }
+
+    private void drawFrame(Canvas canvas){
+        if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "perform draw");
+        super.onDraw (canvas);
+        if(mGeometryDirty){
+            updateGeometry();
+            mSnapshotDirty = true;
+        }
+        int width = getWidth ();
+        int height = getHeight ();
+        if(!mSnapshotEnabled || width <= 0 || height <= 0){
+            drawContent (canvas);
+            return;
+        }
+        // 尺寸改变时重新创建快照
+        if(mSnapshot == null || mSnapshot.getWidth () != width || mSnapshot.getHeight () != height){
+            // 正在重新绘制，旧的绘制记录马上会被替换，可以立即回收旧的快照
+            releaseSnapshot (true);
+            mSnapshot = Bitmap.createBitmap (width, height, Bitmap.Config.ARGB_8888);
+            mSnapshotCanvas = new Canvas (mSnapshot);
+            mSnapshotDirty = true;
+        }
+        // 快照是否可以直接使用
+        ViewMetrics.recordCache (ViewMetrics.VIEW_CORNER_BUTTON, !mSnapshotDirty);
+        if(mSnapshotDirty){
+            if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "rebuild snapshot");
+            mSnapshot.eraseColor (Color.TRANSPARENT);
+            drawContent (mSnapshotCanvas);
+            mSnapshotDirty = false;
+        }
+        canvas.drawBitmap (mSnapshot, 0, 0, null);
+    }
+
+    // 绘制背景、边框、文字和图标
+    private void drawContent(Canvas canvas){
+        // (1)画背景
+        if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "draw background");
+        mBgPaint.setShader (mBgShaderSlot.get (mShapeLeft, mShapeTop, mShapeRight, mShapeBottom, mStartColor, mEndColor, Shader.TileMode.REPEAT));
+        ViewMetrics.recordCache (ViewMetrics.VIEW_CORNER_BUTTON, mBgShaderSlot.isLastHit ());
+        if(mIsCircle){
+            // 背景是圆形
+            canvas.drawCircle (mCircleCenterX, mCircleCenterY, mCircleRadius, mBgPaint);
+        } else {
+            // 背景是圆角矩形
             canvas.drawPath (mBorderPath, mBgPaint);
         }
 
         // (2)画边框
         if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "draw border");
-        if(realWidth <= realHeight){
+        if(mIsCircle){
             // 边框是圆形
-            canvas.drawCircle ((float) ((left + right) * 1.0 / 2), (float) ((top + bottom) * 1.0 / 2), (float) (realWidth * 1.0 / 2), mBorderPaint);
+            canvas.drawCircle (mCircleCenterX, mCircleCenterY, mCircleRadius, mBorderPaint);
         } else {
             // 边框是圆角矩形
             canvas.drawPath (mBorderPath, mBorderPaint);
         }
 
-        // (3)确定文字位置，画文字
-        if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "draw text");
-        mTextPaint.getTextBounds (mText, 0, mText.length (), mTextBound);
-        // 文字、图标、内容宽高
-        int textHeight;
-        int textWidth;
-        int iconWidth;
-        int iconHeight;
-        int contentWidth;
-
-        // 绘制的文字位置, textPositionX是文本重点横坐标,textPositionY是文本基线纵坐标
-        float textPositionX;
-        float textPositionY;
-
-        textHeight = mTextBound.height ();
-        textWidth = mTextBound.width ();
-        iconWidth = mIcon.getIntrinsicWidth();
-        iconHeight = mIcon.getIntrinsicHeight ();
-        // 为了保证文字和图标等高，需要对图标缩放
-        float scale = (float) (textHeight * 1.0 / iconHeight);
-        iconHeight = textHeight;
-        iconWidth = (int) (iconWidth * scale);
-        contentWidth = textWidth + iconWidth + mDistance;
-
-        // 如果圆角button装不下文字和图标，那就不显示内容
-        // 这种情况只会发生在使用者指定了宽高的情况下，没指定的情况下
-        // 不会发生
-        if(mIsWidthExactly && contentWidth > realWidth)return;
-        if(mIsHeightExactly && textHeight > realHeight)return;
+        // 装不下文字和图标时不显示内容
+        if(!mIsContentVisible){
+            return;
+        }
 
-        textPositionX = (float) ((left + right + textWidth - contentWidth) * 1.0 / 2);
-        textPositionY = top + (float)(realHeight * 1.0 / 2) - (mTextPaint.getFontMetrics ().top + mTextPaint.getFontMetrics ().bottom) / 2 + (float) (((mInnerPaddingTop - mInnerPaddingBottom) * 1.0) / 2);
-        canvas.drawText (mText, textPositionX, textPositionY, mTextPaint);
+        // (3)画文字
+        if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "draw text");
+        canvas.drawText (mText, mTextPositionX, mTextPositionY, mTextPaint);
 
-        // (4)确定图标位置,画图标
+        // (4)画图标
         if(Consts.CORNER_BUTTON_DEBUG)Log.d(TAG, "draw icon");
-        int iconLeft = (int) (textPositionX + (textWidth * 1.0) / 2 + mDistance);
-        int iconTop = (int) (top + mInnerPaddingTop);
-        int iconRight = iconLeft + iconWidth;
-        int iconBottom = iconTop + iconHeight;
-        mIcon.setBounds (iconLeft, iconTop, iconRight, iconBottom);
         mIcon.draw (canvas);
-        canvas.save();
-        canvas.restore();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow ();
+        // 离开窗口时释放了快照，之前的绘制记录不能再用，重新绘制时重建快照
+        if(mSnapshotEnabled){
+            invalidate ();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow ();
+        // 离开窗口后释放快照，重新显示时再绘制，保证内存有上限
+        releaseSnapshot (false);
+    }
+
+    /**
+     * 释放快照
+     * @param recycle 是否立即回收位图。之前的绘制记录还引用着这个位图，只有在绘制过程中替换快照时才能回收，
+     *                其余情况只去掉引用，交给GC回收，否则旧版本的硬件加速可能绘制一个已经回收的位图
+     */
+    private void releaseSnapshot(boolean recycle){
+        if(mSnapshot != null){
+            if(recycle){
+                mSnapshot.recycle ();
+            }
+            mSnapshot = null;
+            mSnapshotCanvas = null;
+        }
+        mSnapshotDirty = true;
+    }
+
+    /**
+     * 开启或者关闭快照模式。开启之后内容只绘制一次到位图中，之后每一帧直接绘制位图，只有属性或者尺寸改变之后才重新绘制，
+     * 适合创建之后不再改变的按钮。快照在离开窗口时释放
+     * @param snapshotEnabled 是否开启
+     *
+     * @since v1.5.4
+     */
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        if(mSnapshotEnabled == snapshotEnabled){
+            return;
+        }
+        mSnapshotEnabled = snapshotEnabled;
+        if(!snapshotEnabled){
+            releaseSnapshot (false);
+        }
+        invalidate ();
+    }
+
+    /**
+     * 是否开启了快照模式
+     * @return 是否开启
+     *
+     * @since v1.5.4
+     */
+    public boolean isSnapshotEnabled() {
+        return mSnapshotEnabled;
     }
 
     // 动态设置属性
     public void setStartColor(int startColor) {
         mStartColor = startColor;
+        mSnapshotDirty = true;
         invalidate ();
     }
 
     public void setEndColor(int endColor){
         mEndColor = endColor;
+        mSnapshotDirty = true;
         invalidate ();
     }
 
     public void setBorderColor(int borderColor) {
         mBorderColor = borderColor;
+        mBorderPaint.setColor (borderColor);
+        mSnapshotDirty = true;
         invalidate ();
     }
 
     public void setTextColor(int textColor) {
         mTextColor = textColor;
+        mTextPaint.setColor (textColor);
+        mSnapshotDirty = true;
         invalidate ();
     }
 
     public void setBorderWidth(int borderWidth) {
         mBorderWidth = borderWidth;
+        mBorderPaint.setStrokeWidth (borderWidth);
+        mSnapshotDirty = true;
         invalidate ();
     }
 
     public void setText(String text) {
         mText = text;
+        mGeometryDirty = true;
+        reloadIcon ();
         // 文字改变会改变view的尺寸，因此应该重新布局
         if(mIsSizeExactly){
             invalidate();
@@ -326,6 +546,9 @@ public class CornerButton extends View {
 
     public void setTextSize(int textSize) {
         mTextSize = textSize;
+        mTextPaint.setTextSize (textSize);
+        mGeometryDirty = true;
+        reloadIcon ();
         // 文字改变会改变view的尺寸，因此应该重新布局
         if(mIsSizeExactly){
             invalidate();
@@ -335,7 +558,14 @@ public class CornerButton extends View {
     }
 
     public void setIcon(Drawable icon) {
-        mIcon = icon;
+        // 之前通过资源id设置的图标作废
+        mIconRequestId++;
+        mIconRes = 0;
+        applyIcon (icon);
+    }
+
+    private void applyIcon(Drawable icon){
+        updateIcon (icon);
         // 图标改变会改变view的尺寸，因此应该重新布局
         if(mIsSizeExactly){
             invalidate();
@@ -347,14 +577,90 @@ public class CornerButton extends View {
         }
     }
 
+    /**
+     * 通过资源id设置图标，图标在后台线程按照实际绘制的高度（文字高度）降采样解码，解码结果在所有CornerButton之间共享。
+     * 解码完成之前显示占位图。矢量图等不是位图的资源第一次加载之后会被记住，之后直接同步加载，不再显示占位图。
+     * 之后文字高度改变（修改文字或者文字大小）时按照新的高度重新解码，解码完成之前继续显示原来的图标
+     * @param resourceId 图标资源id
+     *
+     * @see #setIconPlaceholder(Drawable)
+     *
+     * @since v1.5.3
+     */
     public void setIcon(@DrawableRes int resourceId){
-        Bitmap bitmap = BitmapFactory.decodeResource (getResources (), resourceId);
-        BitmapDrawable drawable = new BitmapDrawable(getResources(), bitmap);
-        setIcon(drawable);
+        applyIcon (loadIcon (resourceId));
+    }
+
+    // 只修改图标，不触发重新布局或者重绘
+    private void updateIcon(Drawable icon){
+        mIcon = icon;
+        mGeometryDirty = true;
+    }
+
+    // 拿到缓存中的图标，没有缓存时返回占位图，并且开始在后台解码，解码完成后替换
+    private Drawable loadIcon(@DrawableRes int resourceId){
+        final int requestId = ++mIconRequestId;
+        mIconRes = resourceId;
+        final Resources resources = getResources ();
+        if(IconDecoder.isNonBitmap (resourceId)){
+            // 已经知道不是位图，直接加载
+            return resources.getDrawable (resourceId);
+        }
+        // 图标绘制时和文字等高
+        TextMeasureCache.measure (mTextPaint, mText, mTextBound, null);
+        int targetHeight = mTextBound.height ();
+        mIconTargetHeight = targetHeight;
+        Bitmap cached = IconDecoder.getCached (resources, resourceId, targetHeight);
+        if(cached != null){
+            return new BitmapDrawable (resources, cached);
+        }
+        final int id = resourceId;
+        IconDecoder.decode (resources, resourceId, targetHeight, new IconDecoder.Callback() {
+            @Override
+            public void onIconDecoded(Bitmap bitmap) {
+                // 解码期间又设置了别的图标
+                if(requestId != mIconRequestId){
+                    return;
+                }
+                if(bitmap != null){
+                    applyIcon (new BitmapDrawable (resources, bitmap));
+                }else{
+                    // 不是位图资源（比如矢量图），直接加载
+                    applyIcon (resources.getDrawable (id));
+                }
+            }
+        });
+        return mIconPlaceholder;
+    }
+
+    // 文字高度改变之后，通过资源id设置的位图图标按照新的高度重新解码，没有缓存时继续显示原来的图标直到解码完成
+    private void reloadIcon(){
+        if(mIconRes == 0 || IconDecoder.isNonBitmap (mIconRes)){
+            return;
+        }
+        TextMeasureCache.measure (mTextPaint, mText, mTextBound, null);
+        if(mTextBound.height () == mIconTargetHeight){
+            return;
+        }
+        Drawable icon = loadIcon (mIconRes);
+        if(icon != mIconPlaceholder){
+            updateIcon (icon);
+        }
+    }
+
+    /**
+     * 设置通过资源id设置图标时，解码完成之前显示的占位图，默认透明
+     * @param placeholder 占位图
+     *
+     * @since v1.5.3
+     */
+    public void setIconPlaceholder(Drawable placeholder) {
+        mIconPlaceholder = placeholder == null ? new ColorDrawable (Color.TRANSPARENT) : placeholder;
     }
 
     public void setDistance(int distance) {
         mDistance = distance;
+        mGeometryDirty = true;
         // 文字改变会改变view的尺寸，因此应该重新布局
         if(mIsSizeExactly){
             invalidate();
@@ -362,4 +668,216 @@ public class CornerButton extends View {
             requestLayout();
         }
     }
+
+    /**
+     * 开始批量修改属性，修改完成后调用{@link Editor#apply()}，所有修改一次生效，最多只触发一次重新布局或者重绘。
+     * 适合在列表中复用时一次修改多个属性，例如：
+     * <pre>
+     *     cornerButton.edit ().text ("text").textSize (40).icon (R.drawable.icon).apply ();
+     * </pre>
+     * 同一个CornerButton每次返回同一个对象，调用apply()之前不要再次调用edit()
+     * @return 编辑器
+     *
+     * @since v1.5.5
+     */
+    public Editor edit(){
+        if(mEditor == null){
+            mEditor = new Editor ();
+        }
+        mEditor.reset ();
+        return mEditor;
+    }
+
+    /**
+     * 批量修改属性的编辑器，通过{@link #edit()}拿到
+     *
+     * @since v1.5.5
+     */
+    public final class Editor {
+        // 每一位表示一个属性被修改过
+        private static final int FLAG_TEXT = 1;
+        private static final int FLAG_TEXT_SIZE = 1 << 1;
+        private static final int FLAG_ICON = 1 << 2;
+        private static final int FLAG_ICON_RES = 1 << 3;
+        private static final int FLAG_DISTANCE = 1 << 4;
+        private static final int FLAG_START_COLOR = 1 << 5;
+        private static final int FLAG_END_COLOR = 1 << 6;
+        private static final int FLAG_BORDER_COLOR = 1 << 7;
+        private static final int FLAG_TEXT_COLOR = 1 << 8;
+        private static final int FLAG_BORDER_WIDTH = 1 << 9;
+        // 会改变尺寸的属性
+        private static final int FLAGS_SIZE = FLAG_TEXT | FLAG_TEXT_SIZE | FLAG_ICON | FLAG_ICON_RES | FLAG_DISTANCE;
+
+        private int mFlags;
+        private String mText;
+        private int mTextSize;
+        private Drawable mIcon;
+        private int mIconRes;
+        private int mDistance;
+        private int mStartColor;
+        private int mEndColor;
+        private int mBorderColor;
+        private int mTextColor;
+        private int mBorderWidth;
+
+        private Editor() {}
+
+        private void reset(){
+            mFlags = 0;
+            mText = null;
+            mIcon = null;
+        }
+
+        /**
+         * @see CornerButton#setText(String)
+         */
+        public Editor text(String text){
+            mText = text;
+            mFlags |= FLAG_TEXT;
+            return this;
+        }
+
+        /**
+         * @see CornerButton#setTextSize(int)
+         */
+        public Editor textSize(int textSize){
+            mTextSize = textSize;
+            mFlags |= FLAG_TEXT_SIZE;
+            return this;
+        }
+
+        /**
+         * @see CornerButton#setIcon(Drawable)
+         */
+        public Editor icon(Drawable icon){
+            mIcon = icon;
+            mFlags = (mFlags | FLAG_ICON) & ~FLAG_ICON_RES;
+            return this;
+        }
+
+        /**
+         * 图标按照修改之后的文字高度解码
+         * @see CornerButton#setIcon(int)
+         */
+        public Editor icon(@DrawableRes int resourceId){
+            mIconRes = resourceId;
+            mIcon = null;
+            mFlags = (mFlags | FLAG_ICON_RES) & ~FLAG_ICON;
+            return this;
+        }
+
+        /**
+         * @see CornerButton#setDistance(int)
+         */
+        public Editor distance(int distance){
+            mDistance = distance;
+            mFlags |= FLAG_DISTANCE;
+            return this;
+        }
+
+        /**
+         * @see CornerButton#setStartColor(int)
+         */
+        public Editor startColor(int startColor){
+            mStartColor = startColor;
+            mFlags |= FLAG_START_COLOR;
+            return this;
+        }
+
+        /**
+         * @see CornerButton#setEndColor(int)
+         */
+        public Editor endColor(int endColor){
+            mEndColor = endColor;
+            mFlags |= FLAG_END_COLOR;
+            return this;
+        }
+
+        /**
+         * @see CornerButton#setBorderColor(int)
+         */
+        public Editor borderColor(int borderColor){
+            mBorderColor = borderColor;
+            mFlags |= FLAG_BORDER_COLOR;
+            return this;
+        }
+
+        /**
+         * @see CornerButton#setTextColor(int)
+         */
+        public Editor textColor(int textColor){
+            mTextColor = textColor;
+            mFlags |= FLAG_TEXT_COLOR;
+            return this;
+        }
+
+        /**
+         * @see CornerButton#setBorderWidth(int)
+         */
+        public Editor borderWidth(int borderWidth){
+            mBorderWidth = borderWidth;
+            mFlags |= FLAG_BORDER_WIDTH;
+            return this;
+        }
+
+        /**
+         * 让所有修改生效。尺寸可能改变并且不是精确测量模式时重新布局，否则只重绘，没有修改时什么也不做
+         */
+        public void apply(){
+            int flags = mFlags;
+            if(flags == 0){
+                return;
+            }
+            // 先修改文字，通过资源id设置的图标按照新的文字高度解码
+            if((flags & FLAG_TEXT) != 0){
+                CornerButton.this.mText = mText;
+            }
+            if((flags & FLAG_TEXT_SIZE) != 0){
+                CornerButton.this.mTextSize = mTextSize;
+                mTextPaint.setTextSize (mTextSize);
+            }
+            if((flags & FLAG_ICON) != 0){
+                mIconRequestId++;
+                CornerButton.this.mIconRes = 0;
+                updateIcon (mIcon);
+            }else if((flags & FLAG_ICON_RES) != 0){
+                updateIcon (loadIcon (mIconRes));
+            }else if((flags & (FLAG_TEXT | FLAG_TEXT_SIZE)) != 0){
+                reloadIcon ();
+            }
+            if((flags & FLAG_DISTANCE) != 0){
+                CornerButton.this.mDistance = mDistance;
+            }
+            if((flags & FLAG_START_COLOR) != 0){
+                CornerButton.this.mStartColor = mStartColor;
+            }
+            if((flags & FLAG_END_COLOR) != 0){
+                CornerButton.this.mEndColor = mEndColor;
+            }
+            if((flags & FLAG_BORDER_COLOR) != 0){
+                CornerButton.this.mBorderColor = mBorderColor;
+                mBorderPaint.setColor (mBorderColor);
+            }
+            if((flags & FLAG_TEXT_COLOR) != 0){
+                CornerButton.this.mTextColor = mTextColor;
+                mTextPaint.setColor (mTextColor);
+            }
+            if((flags & FLAG_BORDER_WIDTH) != 0){
+                CornerButton.this.mBorderWidth = mBorderWidth;
+                mBorderPaint.setStrokeWidth (mBorderWidth);
+            }
+            reset ();
+            mSnapshotDirty = true;
+            if((flags & FLAGS_SIZE) == 0){
+                invalidate ();
+                return;
+            }
+            mGeometryDirty = true;
+            if(!mIsSizeExactly){
+                requestLayout ();
+            }else{
+                invalidate ();
+            }
+        }
+    }
 }
@@ -0,0 +1,147 @@
+package com.github.xiaogegechen.library;
+
+import android.graphics.LinearGradient;
+import android.graphics.Shader;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 进程内共享的线性渐变着色器缓存，按照渐变的端点、颜色和平铺模式缓存，样式相同的控件共用同一个着色器。
+ * LinearGradient创建之后不会再被修改，所以可以安全地共享。每个控件通过{@link Slot}记住上一次使用的着色器，
+ * 参数不变时不需要查找缓存，也不会分配内存
+ *
+ * @since v1.5.2
+ */
+final class GradientShaderCache {
+
+    // 最多缓存的着色器个数
+    private static final int MAX_SIZE = 64;
+
+    private static final Object sLock = new Object();
+    // 按访问顺序排列，最久没有使用的在最前面
+    private static final LinkedHashMap<Key, LinearGradient> sCache = new LinkedHashMap<Key, LinearGradient>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, LinearGradient> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+    // 查找时复用的key
+    private static final Key sProbe = new Key();
+
+    private GradientShaderCache() {}
+
+    /**
+     * 拿到一个线性渐变着色器，缓存中有相同参数的直接返回
+     */
+    static LinearGradient obtain(float x0, float y0, float x1, float y1, int startColor, int endColor, Shader.TileMode tileMode){
+        synchronized (sLock){
+            sProbe.set(x0, y0, x1, y1, startColor, endColor, tileMode);
+            LinearGradient shader = sCache.get(sProbe);
+            if(shader == null){
+                shader = new LinearGradient(x0, y0, x1, y1, startColor, endColor, tileMode);
+                Key key = new Key();
+                key.set(x0, y0, x1, y1, startColor, endColor, tileMode);
+                sCache.put(key, shader);
+            }
+            return shader;
+        }
+    }
+
+    /**
+     * 每个控件持有一个，记住上一次的参数和着色器，只有参数改变时才去缓存中查找
+     */
+    static final class Slot {
+        private final Key mKey = new Key();
+        // 是否从共享缓存中拿着色器，不共享时着色器只属于这个Slot，可以修改它的变换矩阵
+        private final boolean mShared;
+        private LinearGradient mShader;
+        // 最近一次是否命中
+        private boolean mLastHit;
+
+        Slot() {
+            this(true);
+        }
+
+        /**
+         * @param shared 是否共享，需要通过{@link Shader#setLocalMatrix}修改着色器时传false
+         */
+        Slot(boolean shared) {
+            mShared = shared;
+        }
+
+        LinearGradient get(float x0, float y0, float x1, float y1, int startColor, int endColor, Shader.TileMode tileMode){
+            mLastHit = mShader != null && mKey.matches(x0, y0, x1, y1, startColor, endColor, tileMode);
+            if(!mLastHit){
+                mShader = mShared
+                        ? obtain(x0, y0, x1, y1, startColor, endColor, tileMode)
+                        : new LinearGradient(x0, y0, x1, y1, startColor, endColor, tileMode);
+                mKey.set(x0, y0, x1, y1, startColor, endColor, tileMode);
+            }
+            return mShader;
+        }
+
+        /**
+         * @return 最近一次{@link #get}是否直接复用了原来的着色器
+         *
+         * @since v1.7.0
+         */
+        boolean isLastHit(){
+            return mLastHit;
+        }
+    }
+
+    // 缓存的key：端点、颜色、平铺模式
+    private static final class Key {
+        private float mX0;
+        private float mY0;
+        private float mX1;
+        private float mY1;
+        private int mStartColor;
+        private int mEndColor;
+        private Shader.TileMode mTileMode;
+        private int mHashCode;
+
+        void set(float x0, float y0, float x1, float y1, int startColor, int endColor, Shader.TileMode tileMode){
+            mX0 = x0;
+            mY0 = y0;
+            mX1 = x1;
+            mY1 = y1;
+            mStartColor = startColor;
+            mEndColor = endColor;
+            mTileMode = tileMode;
+            int hashCode = Float.floatToIntBits(x0);
+            hashCode = 31 * hashCode + Float.floatToIntBits(y0);
+            hashCode = 31 * hashCode + Float.floatToIntBits(x1);
+            hashCode = 31 * hashCode + Float.floatToIntBits(y1);
+            hashCode = 31 * hashCode + startColor;
+            hashCode = 31 * hashCode + endColor;
+            hashCode = 31 * hashCode + tileMode.hashCode();
+            mHashCode = hashCode;
+        }
+
+        boolean matches(float x0, float y0, float x1, float y1, int startColor, int endColor, Shader.TileMode tileMode){
+            return Float.compare(mX0, x0) == 0 && Float.compare(mY0, y0) == 0
+                    && Float.compare(mX1, x1) == 0 && Float.compare(mY1, y1) == 0
+                    && mStartColor == startColor && mEndColor == endColor && mTileMode == tileMode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o){
+                return true;
+            }
+            if(!(o instanceof Key)){
+                return false;
+            }
+            Key key = (Key) o;
+            return mHashCode == key.mHashCode
+                    && key.matches(mX0, mY0, mX1, mY1, mStartColor, mEndColor, mTileMode);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.xiaogegechen.library;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.util.SparseBooleanArray;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * 在后台线程解码图标资源，按照实际绘制的高度降采样，解码结果通过有上限的LruCache在所有控件之间共享。
+ * 同一个图标同时被多个控件请求时只解码一次。不是位图的资源（比如矢量图）解码过一次之后会被记住，之后由调用方直接同步加载。
+ * 除了解码本身，所有方法都只能在主线程调用
+ *
+ * @since v1.5.3
+ */
+final class IconDecoder {
+
+    /**
+     * 解码完成的回调，在主线程回调
+     */
+    interface Callback {
+        /**
+         * @param bitmap 解码得到的图片，资源不是位图（比如矢量图）时为null
+         */
+        void onIconDecoded(Bitmap bitmap);
+    }
+
+    // 缓存占用的最大字节数，取可用内存的1/32
+    private static final int CACHE_MAX_BYTES = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 32);
+
+    private static final LruCache<Key, Bitmap> sCache = new LruCache<Key, Bitmap>(CACHE_MAX_BYTES){
+        @Override
+        protected int sizeOf(Key key, Bitmap value) {
+            return value.getRowBytes() * value.getHeight();
+        }
+    };
+    // 正在解码的图标和等待结果的回调
+    private static final HashMap<Key, ArrayList<Callback>> sPending = new HashMap<>();
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    // 已经知道不是位图的资源id，不需要再到后台解码
+    private static final SparseBooleanArray sNonBitmapIds = new SparseBooleanArray();
+
+    private IconDecoder() {}
+
+    /**
+     * 从缓存中拿到已经解码好的图标
+     * @param resources 资源
+     * @param resId 图标资源id
+     * @param targetHeight 实际绘制的高度，不大于0时不降采样
+     * @return 图标，没有缓存时返回null
+     */
+    static Bitmap getCached(Resources resources, int resId, int targetHeight){
+        return sCache.get(new Key(resId, targetHeight, resources.getDisplayMetrics().densityDpi));
+    }
+
+    /**
+     * 资源是否已经确定不是位图，是的话应该直接通过Resources#getDrawable(int)加载，矢量图加载很快，而且不需要降采样
+     * @param resId 图标资源id
+     * @return 是否不是位图
+     *
+     * @since v1.7.0
+     */
+    static boolean isNonBitmap(int resId){
+        return sNonBitmapIds.get(resId);
+    }
+
+    /**
+     * 在后台线程解码图标，完成后在主线程回调。缓存中已经有时直接回调
+     * @param resources 资源
+     * @param resId 图标资源id
+     * @param targetHeight 实际绘制的高度，不大于0时不降采样
+     * @param callback 回调
+     */
+    static void decode(final Resources resources, final int resId, final int targetHeight, Callback callback){
+        final Key key = new Key(resId, targetHeight, resources.getDisplayMetrics().densityDpi);
+        Bitmap cached = sCache.get(key);
+        if(cached != null){
+            callback.onIconDecoded(cached);
+            return;
+        }
+        ArrayList<Callback> callbacks = sPending.get(key);
+        if(callbacks != null){
+            // 已经在解码，等待同一个结果
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        sPending.put(key, callbacks);
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = decodeSampled(resources, resId, targetHeight);
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(bitmap != null){
+                            sCache.put(key, bitmap);
+                        }else{
+                            sNonBitmapIds.put(resId, true);
+                        }
+                        ArrayList<Callback> waiting = sPending.remove(key);
+                        if(waiting != null){
+                            for (Callback c : waiting) {
+                                c.onIconDecoded(bitmap);
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    // 先只解码尺寸，算出降采样倍数之后再解码，解码出来的高度不小于目标高度
+    private static Bitmap decodeSampled(Resources resources, int resId, int targetHeight){
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        // 不按照屏幕密度缩放，绘制时会缩放到目标高度
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        if(options.outWidth <= 0 || options.outHeight <= 0){
+            return null;
+        }
+        int sampleSize = 1;
+        if(targetHeight > 0){
+            while (options.outHeight / (sampleSize * 2) >= targetHeight){
+                sampleSize *= 2;
+            }
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeResource(resources, resId, options);
+    }
+
+    // 缓存的key：资源id、目标高度、屏幕密度
+    private static final class Key {
+        private final int mResId;
+        private final int mTargetHeight;
+        private final int mDensityDpi;
+
+        Key(int resId, int targetHeight, int densityDpi) {
+            mResId = resId;
+            mTargetHeight = targetHeight;
+            mDensityDpi = densityDpi;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o){
+                return true;
+            }
+            if(!(o instanceof Key)){
+                return false;
+            }
+            Key key = (Key) o;
+            return mResId == key.mResId && mTargetHeight == key.mTargetHeight && mDensityDpi == key.mDensityDpi;
+        }
+
+        @Override
+        public int hashCode() {
+            int hashCode = mResId;
+            hashCode = 31 * hashCode + mTargetHeight;
+            hashCode = 31 * hashCode + mDensityDpi;
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.xiaogegechen.library;
+
+/**
+ * 可增长的long列表，用来按位置记录Adapter的稳定ID，插入、删除和移动时和BitSetUtils一样整体平移，不装箱
+ *
+ * @since v1.7.0
+ */
+final class LongList {
+
+    private long[] mValues;
+    private int mSize = 0;
+
+    LongList() {
+        this(10);
+    }
+
+    LongList(int capacity) {
+        mValues = new long[Math.max(1, capacity)];
+    }
+
+    int size(){
+        return mSize;
+    }
+
+    long get(int index){
+        if(index < 0 || index >= mSize){
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + mSize);
+        }
+        return mValues[index];
+    }
+
+    void clear(){
+        mSize = 0;
+    }
+
+    void add(long value){
+        add(mSize, value);
+    }
+
+    /**
+     * 在index处插入一个值，原来index及之后的值向后平移
+     * @param index 插入位置
+     * @param value 值
+     */
+    void add(int index, long value){
+        if(index < 0 || index > mSize){
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + mSize);
+        }
+        ensureCapacity(mSize + 1);
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mValues[index] = value;
+        mSize++;
+    }
+
+    /**
+     * 删除从index开始的count个值，之后的值向前平移
+     * @param index 删除位置
+     * @param count 删除个数
+     */
+    void removeRange(int index, int count){
+        if(index < 0 || count < 0 || index + count > mSize){
+            throw new IndexOutOfBoundsException("index: " + index + ", count: " + count + ", size: " + mSize);
+        }
+        System.arraycopy(mValues, index + count, mValues, index, mSize - index - count);
+        mSize -= count;
+    }
+
+    /**
+     * 把from处的值移动到to处，中间的值跟着平移
+     * @param from 原位置
+     * @param to 新位置
+     */
+    void move(int from, int to){
+        long value = get(from);
+        get(to);
+        if(from < to){
+            System.arraycopy(mValues, from + 1, mValues, from, to - from);
+        }else{
+            System.arraycopy(mValues, to, mValues, to + 1, from - to);
+        }
+        mValues[to] = value;
+    }
+
+    private void ensureCapacity(int capacity){
+        if(capacity <= mValues.length){
+            return;
+        }
+        long[] values = new long[Math.max(capacity, mValues.length * 2)];
+        System.arraycopy(mValues, 0, values, 0, mSize);
+        mValues = values;
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.xiaogegechen.library;
+
+/**
+ * 一次展开或者关闭动画的帧数据，由{@link MenuView.OnAnimationMetricsListener}回调。同一个MenuView的每次回调复用同一个
+ * 对象，只在回调过程中有效，需要保存时自己把数据拷贝出来
+ *
+ * @since v1.4.6
+ */
+public final class MenuAnimationMetrics {
+
+    /**
+     * 最多记录的掉帧子View个数，超过之后只计数不记录
+     */
+    public static final int MAX_RECORDED_LATE_FRAMES = 32;
+
+    // 动画最终是否是展开
+    private boolean mOpening;
+    // 动画过程中是否被反向过
+    private boolean mReversed;
+    // 参与动画的子View个数
+    private int mAnimatedItemCount;
+    // 从开始到结束的实际时长
+    private long mWallTimeNanos;
+    // 一帧的理论时长
+    private long mFrameIntervalNanos;
+    // 实际绘制的帧数
+    private int mFramesRendered;
+    // 按照刷新率应该绘制的帧数
+    private int mFramesExpected;
+    // 最长的一帧
+    private long mLongestFrameNanos;
+    // 最长的一帧时正在动画的子View位置
+    private int mLongestFrameItemIndex;
+    // 掉帧的帧数
+    private int mLateFrameCount;
+    // 掉帧时正在动画的子View位置，预先分配，不在每一帧分配内存
+    private final int[] mLateFrameItemIndexes = new int[MAX_RECORDED_LATE_FRAMES];
+
+    MenuAnimationMetrics() {}
+
+    // 开始新的一次动画时清空
+    void reset(boolean opening, int animatedItemCount, long frameIntervalNanos){
+        mOpening = opening;
+        mReversed = false;
+        mAnimatedItemCount = animatedItemCount;
+        mFrameIntervalNanos = frameIntervalNanos;
+        mWallTimeNanos = 0;
+        mFramesRendered = 0;
+        mFramesExpected = 0;
+        mLongestFrameNanos = 0;
+        mLongestFrameItemIndex = -1;
+        mLateFrameCount = 0;
+    }
+
+    void onReversed(boolean opening){
+        mOpening = opening;
+        mReversed = true;
+    }
+
+    void onFrame(long frameNanos, boolean late, int itemIndex){
+        mFramesRendered++;
+        if(frameNanos > mLongestFrameNanos){
+            mLongestFrameNanos = frameNanos;
+            mLongestFrameItemIndex = itemIndex;
+        }
+        if(late){
+            if(mLateFrameCount < MAX_RECORDED_LATE_FRAMES){
+                mLateFrameItemIndexes[mLateFrameCount] = itemIndex;
+            }
+            mLateFrameCount++;
+        }
+    }
+
+    void finish(long wallTimeNanos){
+        mWallTimeNanos = wallTimeNanos;
+        mFramesExpected = (int) Math.max(1, Math.round((double) wallTimeNanos / mFrameIntervalNanos));
+    }
+
+    /**
+     * @return 动画最终是否是展开
+     */
+    public boolean isOpening() {
+        return mOpening;
+    }
+
+    /**
+     * @return 动画过程中是否被反向过
+     */
+    public boolean isReversed() {
+        return mReversed;
+    }
+
+    /**
+     * @return 参与动画的子View个数
+     */
+    public int getAnimatedItemCount() {
+        return mAnimatedItemCount;
+    }
+
+    /**
+     * @return 从开始到结束的实际时长，单位毫秒
+     */
+    public long getWallTimeMillis() {
+        return mWallTimeNanos / 1000000L;
+    }
+
+    /**
+     * @return 从开始到结束的实际时长，单位纳秒
+     */
+    public long getWallTimeNanos() {
+        return mWallTimeNanos;
+    }
+
+    /**
+     * @return 按照屏幕刷新率一帧的理论时长，单位纳秒
+     */
+    public long getFrameIntervalNanos() {
+        return mFrameIntervalNanos;
+    }
+
+    /**
+     * @return 实际绘制的帧数
+     */
+    public int getFramesRendered() {
+        return mFramesRendered;
+    }
+
+    /**
+     * @return 按照屏幕刷新率应该绘制的帧数
+     */
+    public int getFramesExpected() {
+        return mFramesExpected;
+    }
+
+    /**
+     * @return 丢掉的帧数，不小于0
+     */
+    public int getFramesDropped() {
+        return Math.max(0, mFramesExpected - mFramesRendered);
+    }
+
+    /**
+     * @return 最长的一帧，单位纳秒
+     */
+    public long getLongestFrameNanos() {
+        return mLongestFrameNanos;
+    }
+
+    /**
+     * @return 最长的一帧时正在动画的子View在Adapter中的位置，没有绘制任何帧时为-1
+     */
+    public int getLongestFrameItemIndex() {
+        return mLongestFrameItemIndex;
+    }
+
+    /**
+     * @return 掉帧的帧数，超过一帧半才算作掉帧
+     */
+    public int getLateFrameCount() {
+        return mLateFrameCount;
+    }
+
+    /**
+     * 拿到第i个掉帧时正在动画的子View在Adapter中的位置
+     * @param i 下标，小于{@link #getLateFrameCount()}并且小于{@link #MAX_RECORDED_LATE_FRAMES}
+     * @return 子View的位置
+     */
+    public int getLateFrameItemIndex(int i) {
+        if(i < 0 || i >= Math.min(mLateFrameCount, MAX_RECORDED_LATE_FRAMES)){
+            throw new IndexOutOfBoundsException("index: " + i + ", recorded: " + Math.min(mLateFrameCount, MAX_RECORDED_LATE_FRAMES));
+        }
+        return mLateFrameItemIndexes[i];
+    }
+}
@@ -0,0 +1,450 @@
+package com.github.xiaogegechen.library;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 计算新旧两份数据之间的差异，并把差异转换成{@link MenuView.Adapter}的notifyXXX()调用，这样数据改变之后
+ * MenuView只会更新真正改变了的子View。数据很多时可以通过{@link #calculateDiffAsync(Callback, boolean, Executor,
+ * OnDiffCalculatedListener)}在后台线程计算。
+ *
+ * @since v1.4.3
+ */
+public final class MenuDiffHelper {
+
+    private MenuDiffHelper() {}
+
+    /**
+     * 比较新旧数据的回调
+     */
+    public static abstract class Callback {
+
+        /**
+         * @return 旧数据的个数
+         */
+        public abstract int getOldListSize();
+
+        /**
+         * @return 新数据的个数
+         */
+        public abstract int getNewListSize();
+
+        /**
+         * 两个位置是否是同一个数据，通常比较ID
+         * @param oldPosition 旧数据的位置
+         * @param newPosition 新数据的位置
+         * @return 是否是同一个数据
+         */
+        public abstract boolean areItemsTheSame(int oldPosition, int newPosition);
+
+        /**
+         * 同一个数据的内容是否没有改变，只有{@link #areItemsTheSame(int, int)}返回true时才会被调用
+         * @param oldPosition 旧数据的位置
+         * @param newPosition 新数据的位置
+         * @return 内容是否相同
+         */
+        public abstract boolean areContentsTheSame(int oldPosition, int newPosition);
+
+        /**
+         * 内容改变时的局部更新信息，会通过{@link MenuView.Adapter#notifyItemChanged(int, Object)}传给
+         * {@link MenuView.Adapter#onBindView(int, android.view.View, Object)}
+         * @param oldPosition 旧数据的位置
+         * @param newPosition 新数据的位置
+         * @return 局部更新信息，默认为null
+         */
+        public Object getChangePayload(int oldPosition, int newPosition){
+            return null;
+        }
+    }
+
+    /**
+     * 后台计算完成的回调，在主线程回调
+     */
+    public interface OnDiffCalculatedListener {
+
+        /**
+         * 计算完成
+         * @param result 计算结果
+         */
+        void onDiffCalculated(DiffResult result);
+    }
+
+    /**
+     * 接收更新操作，和{@link MenuView.Adapter}的notifyXXX()一一对应
+     */
+    interface UpdateCallback {
+        void onRemoved(int position, int count);
+
+        void onInserted(int position, int count);
+
+        void onMoved(int fromPosition, int toPosition);
+
+        void onChanged(int position, int count, Object payload);
+    }
+
+    /**
+     * 计算结果，保存了一组按顺序执行的更新操作
+     */
+    public static final class DiffResult {
+
+        private static final int OP_REMOVE = 0;
+        private static final int OP_INSERT = 1;
+        private static final int OP_MOVE = 2;
+        private static final int OP_CHANGE = 3;
+
+        // 依次为类型，参数1，参数2
+        private final int[] mOps;
+        private final Object[] mPayloads;
+        private final int mOpCount;
+
+        private DiffResult(int[] ops, Object[] payloads, int opCount) {
+            mOps = ops;
+            mPayloads = payloads;
+            mOpCount = opCount;
+        }
+
+        /**
+         * 把差异分发给Adapter，调用之前Adapter的数据必须已经换成新数据
+         * @param adapter 适配器
+         */
+        public void dispatchUpdatesTo(@NonNull final MenuView.Adapter adapter){
+            dispatchUpdatesTo(new UpdateCallback() {
+                @Override
+                public void onRemoved(int position, int count) {
+                    adapter.notifyItemRangeRemoved(position, count);
+                }
+
+                @Override
+                public void onInserted(int position, int count) {
+                    adapter.notifyItemRangeInserted(position, count);
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    adapter.notifyItemMoved(fromPosition, toPosition);
+                }
+
+                @Override
+                public void onChanged(int position, int count, Object payload) {
+                    adapter.notifyItemRangeChanged(position, count, payload);
+                }
+            });
+        }
+
+        // 按顺序分发更新操作
+        void dispatchUpdatesTo(UpdateCallback callback){
+            for (int i = 0; i < mOpCount; i++) {
+                int arg1 = mOps[i * 3 + 1];
+                int arg2 = mOps[i * 3 + 2];
+                switch (mOps[i * 3]){
+                    case OP_REMOVE:
+                        callback.onRemoved(arg1, arg2);
+                        break;
+                    case OP_INSERT:
+                        callback.onInserted(arg1, arg2);
+                        break;
+                    case OP_MOVE:
+                        callback.onMoved(arg1, arg2);
+                        break;
+                    case OP_CHANGE:
+                        callback.onChanged(arg1, arg2, mPayloads[i]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * @return 更新操作的个数，为0表示新旧数据相同
+         */
+        public int getUpdateCount(){
+            return mOpCount;
+        }
+    }
+
+    /**
+     * 计算差异，同时检测移动
+     * @param callback 比较数据的回调
+     * @return 计算结果
+     */
+    public static DiffResult calculateDiff(@NonNull Callback callback){
+        return calculateDiff(callback, true);
+    }
+
+    /**
+     * 计算差异
+     * @param callback 比较数据的回调
+     * @param detectMoves 是否检测移动，检测移动之后被移动的子View不会被删除再重新创建
+     * @return 计算结果
+     */
+    public static DiffResult calculateDiff(@NonNull Callback callback, boolean detectMoves){
+        int oldSize = callback.getOldListSize();
+        int newSize = callback.getNewListSize();
+        // oldToNew[i]为旧数据i对应的新位置，-1表示被删除
+        int[] oldToNew = new int[oldSize];
+        int[] newToOld = new int[newSize];
+        for (int i = 0; i < oldSize; i++) {
+            oldToNew[i] = -1;
+        }
+        for (int i = 0; i < newSize; i++) {
+            newToOld[i] = -1;
+        }
+        matchLongestCommonSubsequence(callback, oldSize, newSize, oldToNew, newToOld);
+        if(detectMoves){
+            // 没有匹配上的新旧数据中如果有同一个数据，说明是移动
+            for (int i = 0; i < oldSize; i++) {
+                if(oldToNew[i] != -1){
+                    continue;
+                }
+                for (int j = 0; j < newSize; j++) {
+                    if(newToOld[j] == -1 && callback.areItemsTheSame(i, j)){
+                        oldToNew[i] = j;
+                        newToOld[j] = i;
+                        break;
+                    }
+                }
+            }
+        }
+        return buildResult(callback, oldSize, newSize, oldToNew, newToOld);
+    }
+
+    /**
+     * 在后台线程计算差异，使用{@link AsyncTask#THREAD_POOL_EXECUTOR}
+     * @param callback 比较数据的回调，计算期间新旧数据都不能改变
+     * @param detectMoves 是否检测移动
+     * @param listener 计算完成之后在主线程回调
+     */
+    public static void calculateDiffAsync(@NonNull Callback callback, boolean detectMoves,
+                                          @NonNull OnDiffCalculatedListener listener){
+        calculateDiffAsync(callback, detectMoves, AsyncTask.THREAD_POOL_EXECUTOR, listener);
+    }
+
+    /**
+     * 在指定的线程池中计算差异
+     * @param callback 比较数据的回调，计算期间新旧数据都不能改变
+     * @param detectMoves 是否检测移动
+     * @param executor 执行计算的线程池
+     * @param listener 计算完成之后在主线程回调
+     */
+    public static void calculateDiffAsync(@NonNull final Callback callback, final boolean detectMoves,
+                                          @NonNull Executor executor,
+                                          @NonNull final OnDiffCalculatedListener listener){
+        final Handler handler = new Handler(Looper.getMainLooper());
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffResult result = calculateDiff(callback, detectMoves);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onDiffCalculated(result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Myers算法求最长公共子序列，把匹配上的新旧位置记录下来
+     */
+    private static void matchLongestCommonSubsequence(Callback callback, int oldSize, int newSize,
+                                                      int[] oldToNew, int[] newToOld){
+        int max = oldSize + newSize;
+        if(max == 0){
+            return;
+        }
+        int offset = max;
+        int[] v = new int[2 * max + 2];
+        // 回溯时需要每一步结束时的v，第d步只用到了k为-d到d之间隔一个的d+1个值，依次存在一个数组中，
+        // 一共只需要O(D^2)的空间，和数据个数无关
+        Trace trace = new Trace();
+        int d;
+        boolean found = false;
+        for (d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if(k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])){
+                    x = v[offset + k + 1];
+                }else{
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < oldSize && y < newSize && callback.areItemsTheSame(x, y)){
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if(x >= oldSize && y >= newSize){
+                    found = true;
+                    break;
+                }
+            }
+            if(found){
+                break;
+            }
+            trace.save(v, offset, d);
+        }
+        // 从终点回溯，沿着斜线走过的位置就是匹配上的数据
+        int x = oldSize;
+        int y = newSize;
+        for (; d > 0; d--) {
+            int k = x - y;
+            int prevK;
+            if(k == -d || (k != d && trace.get(d - 1, k - 1) < trace.get(d - 1, k + 1))){
+                prevK = k + 1;
+            }else{
+                prevK = k - 1;
+            }
+            int prevX = trace.get(d - 1, prevK);
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY){
+                x--;
+                y--;
+                oldToNew[x] = y;
+                newToOld[y] = x;
+            }
+            x = prevX;
+            y = prevY;
+        }
+        // d为0时剩下的是开头的斜线
+        while (x > 0 && y > 0){
+            x--;
+            y--;
+            oldToNew[x] = y;
+            newToOld[y] = x;
+        }
+    }
+
+    /**
+     * 模拟在旧数据上依次执行删除、插入、移动和改变，生成按顺序执行的更新操作
+     */
+    private static DiffResult buildResult(Callback callback, int oldSize, int newSize,
+                                          int[] oldToNew, int[] newToOld){
+        OpList ops = new OpList();
+        // 从后往前删除，这样前面的位置不变，连续的删除合并成一次
+        int i = oldSize - 1;
+        while (i >= 0){
+            if(oldToNew[i] != -1){
+                i--;
+                continue;
+            }
+            int end = i;
+            while (i >= 0 && oldToNew[i] == -1){
+                i--;
+            }
+            ops.add(DiffResult.OP_REMOVE, i + 1, end - i, null);
+        }
+        // 删除之后，已经放到位的j个数据后面是还没有放到位的旧数据，它们之间保持旧位置的顺序，所以某个旧数据当前的
+        // 位置就是j加上排在它前面的还没有放到位的旧数据个数，用树状数组按旧位置计数，每次查询和更新都是O(log N)
+        int[] pending = new int[oldSize + 1];
+        for (int j = 0; j < oldSize; j++) {
+            if(oldToNew[j] != -1){
+                fenwickAdd(pending, j, 1);
+            }
+        }
+        // 从前往后把每个新位置放到位，连续的插入合并成一次
+        int j = 0;
+        while (j < newSize){
+            int oldPosition = newToOld[j];
+            if(oldPosition == -1){
+                int start = j;
+                while (j < newSize && newToOld[j] == -1){
+                    j++;
+                }
+                ops.add(DiffResult.OP_INSERT, start, j - start, null);
+                continue;
+            }
+            int from = j + fenwickSum(pending, oldPosition);
+            fenwickAdd(pending, oldPosition, -1);
+            if(from != j){
+                ops.add(DiffResult.OP_MOVE, from, j, null);
+            }
+            j++;
+        }
+        // 最后在新位置上通知内容改变，payload相同的连续改变合并成一次
+        j = 0;
+        while (j < newSize){
+            int oldPosition = newToOld[j];
+            if(oldPosition == -1 || callback.areContentsTheSame(oldPosition, j)){
+                j++;
+                continue;
+            }
+            Object payload = callback.getChangePayload(oldPosition, j);
+            int start = j;
+            j++;
+            while (j < newSize && payload == null && newToOld[j] != -1
+                    && !callback.areContentsTheSame(newToOld[j], j)
+                    && callback.getChangePayload(newToOld[j], j) == null){
+                j++;
+            }
+            ops.add(DiffResult.OP_CHANGE, start, j - start, payload);
+        }
+        return new DiffResult(ops.mOps, ops.mPayloads, ops.mCount);
+    }
+
+    // 树状数组，下标index处加上delta
+    private static void fenwickAdd(int[] tree, int index, int delta){
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // 树状数组，下标小于index的所有值之和
+    private static int fenwickSum(int[] tree, int index){
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Myers算法每一步结束时的v，第d步的k从-d到d隔一个存一个，存在从d*(d+1)/2开始的d+1个位置
+    private static final class Trace {
+        private int[] mValues = new int[16];
+
+        void save(int[] v, int offset, int d){
+            int base = d * (d + 1) / 2;
+            if(base + d + 1 > mValues.length){
+                int[] values = new int[Math.max(base + d + 1, mValues.length * 2)];
+                System.arraycopy(mValues, 0, values, 0, base);
+                mValues = values;
+            }
+            for (int k = -d, i = base; k <= d; k += 2, i++) {
+                mValues[i] = v[offset + k];
+            }
+        }
+
+        int get(int d, int k){
+            return mValues[d * (d + 1) / 2 + (k + d) / 2];
+        }
+    }
+
+    // 可增长的操作列表
+    private static final class OpList {
+        private int[] mOps = new int[30];
+        private Object[] mPayloads = new Object[10];
+        private int mCount = 0;
+
+        void add(int type, int arg1, int arg2, Object payload){
+            if(mCount == mPayloads.length){
+                int[] ops = new int[mOps.length * 2];
+                System.arraycopy(mOps, 0, ops, 0, mOps.length);
+                mOps = ops;
+                Object[] payloads = new Object[mPayloads.length * 2];
+                System.arraycopy(mPayloads, 0, payloads, 0, mPayloads.length);
+                mPayloads = payloads;
+            }
+            mOps[mCount * 3] = type;
+            mOps[mCount * 3 + 1] = arg1;
+            mOps[mCount * 3 + 2] = arg2;
+            mPayloads[mCount] = payload;
+            mCount++;
+        }
+    }
+}
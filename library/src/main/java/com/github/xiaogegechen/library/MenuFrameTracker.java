@@ -0,0 +1,86 @@
+package com.github.xiaogegechen.library;
+
+import android.view.Choreographer;
+import android.view.Display;
+
+/**
+ * 通过Choreographer的帧回调统计MenuView一次动画的帧数据，每一帧只更新预先分配好的{@link MenuAnimationMetrics}，不分配内存
+ *
+ * @since v1.4.6
+ */
+final class MenuFrameTracker implements Choreographer.FrameCallback {
+
+    // 拿不到刷新率时按照60帧计算
+    private static final float REFRESH_RATE_DEFAULT = 60f;
+
+    private final MenuView mMenuView;
+    private final MenuAnimationMetrics mMetrics = new MenuAnimationMetrics();
+    private boolean mTracking = false;
+    private long mStartNanos;
+    // 上一帧的vsync时间，第一帧之前为0
+    private long mLastFrameNanos;
+
+    MenuFrameTracker(MenuView menuView) {
+        mMenuView = menuView;
+    }
+
+    /**
+     * 开始统计，已经在统计时重新开始
+     * @param opening 是否是展开
+     * @param animatedItemCount 参与动画的子View个数
+     */
+    void start(boolean opening, int animatedItemCount){
+        Choreographer choreographer = Choreographer.getInstance();
+        if(mTracking){
+            choreographer.removeFrameCallback(this);
+        }
+        float refreshRate = REFRESH_RATE_DEFAULT;
+        Display display = mMenuView.getDisplay();
+        if(display != null && display.getRefreshRate() > 0){
+            refreshRate = display.getRefreshRate();
+        }
+        mMetrics.reset(opening, animatedItemCount, (long) (1000000000L / refreshRate));
+        mTracking = true;
+        mStartNanos = System.nanoTime();
+        mLastFrameNanos = 0;
+        choreographer.postFrameCallback(this);
+    }
+
+    /**
+     * 动画被反向
+     * @param opening 反向之后是否是展开
+     */
+    void onReversed(boolean opening){
+        if(mTracking){
+            mMetrics.onReversed(opening);
+        }
+    }
+
+    /**
+     * 结束统计
+     * @return 统计结果，没有在统计时返回null
+     */
+    MenuAnimationMetrics stop(){
+        if(!mTracking){
+            return null;
+        }
+        mTracking = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+        mMetrics.finish(System.nanoTime() - mStartNanos);
+        return mMetrics;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if(!mTracking){
+            return;
+        }
+        // 第一帧没有上一帧可以比较，只计数
+        long frameNanos = mLastFrameNanos == 0 ? 0 : frameTimeNanos - mLastFrameNanos;
+        // 超过一帧半才算作掉帧，避免vsync抖动误报
+        boolean late = frameNanos * 2 > mMetrics.getFrameIntervalNanos() * 3;
+        mMetrics.onFrame(frameNanos, late, mMenuView.getAnimatingPosition());
+        mLastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -0,0 +1,248 @@
+package com.github.xiaogegechen.library;
+
+import android.view.View;
+import android.view.ViewPropertyAnimator;
+
+/**
+ * MenuView中每个子View展开和关闭的效果，通过{@link MenuView#setItemAnimator(MenuItemAnimator)}设置。动画进度由MenuView
+ * 统一驱动，这里只负责把进度转换成子View的属性。实现时只能修改不会触发重新布局的属性（translationX/Y、alpha、scaleX/Y、
+ * rotation*等），并且每一帧都不能分配内存。同一个对象可以被多个MenuView共用，不要在里面保存某个子View的状态
+ *
+ * @since v1.6.1
+ */
+public abstract class MenuItemAnimator {
+
+    private static final MenuItemAnimator ROTATION = new RotationAnimator();
+    private static final MenuItemAnimator TRANSLATION = new TranslationAnimator();
+    private static final MenuItemAnimator ALPHA = new AlphaAnimator();
+    private static final MenuItemAnimator SCALE = new ScaleAnimator();
+
+    /**
+     * 绕子View的一边旋转90度，竖直方向绕左边旋转，水平方向绕下边旋转，默认的效果
+     * @return 共用的实例
+     */
+    public static MenuItemAnimator rotation(){
+        return ROTATION;
+    }
+
+    /**
+     * 沿着和排列方向垂直的方向平移出MenuView，竖直方向向左移出，水平方向向下移出
+     * @return 共用的实例
+     */
+    public static MenuItemAnimator translation(){
+        return TRANSLATION;
+    }
+
+    /**
+     * 淡入淡出
+     * @return 共用的实例
+     */
+    public static MenuItemAnimator alpha(){
+        return ALPHA;
+    }
+
+    /**
+     * 缩放，缩放中心和旋转效果的旋转轴相同
+     * @return 共用的实例
+     */
+    public static MenuItemAnimator scale(){
+        return SCALE;
+    }
+
+    /**
+     * 子View完成布局之后、开始动画之前调用，可以在这里设置变换中心等和尺寸有关的属性，默认什么也不做
+     * @param item 子View
+     * @param orientation MenuView的方向，{@link MenuView#HORIZONTAL}或者{@link MenuView#VERTICAL}
+     */
+    public void onPrepare(View item, @MenuView.OrientationMode int orientation){
+    }
+
+    /**
+     * 设置子View的进度，每一帧都会调用
+     * @param item 子View
+     * @param progress 进度，0表示完全关闭，1表示完全展开，已经经过插值器的处理
+     * @param orientation MenuView的方向，{@link MenuView#HORIZONTAL}或者{@link MenuView#VERTICAL}
+     */
+    public abstract void apply(View item, float progress, @MenuView.OrientationMode int orientation);
+
+    /**
+     * 是否支持预排动画，支持时需要实现{@link #schedule(View, ViewPropertyAnimator, float, int)}。默认不支持，
+     * 预排模式下会退回到逐帧调用{@link #apply(View, float, int)}
+     * @return 是否支持预排动画
+     *
+     * @see MenuView#setScheduledAnimationEnabled(boolean)
+     *
+     * @since v1.6.2
+     */
+    public boolean isSchedulable(){
+        return false;
+    }
+
+    /**
+     * 预排模式下调用，把子View到达进度progress时的属性设置成animator的目标值，时长、延迟和插值器由MenuView设置。
+     * 效果必须和{@link #apply(View, float, int)}一致
+     * @param item 子View
+     * @param animator 子View的ViewPropertyAnimator
+     * @param progress 目标进度，0表示完全关闭，1表示完全展开
+     * @param orientation MenuView的方向，{@link MenuView#HORIZONTAL}或者{@link MenuView#VERTICAL}
+     *
+     * @since v1.6.2
+     */
+    public void schedule(View item, ViewPropertyAnimator animator, float progress, @MenuView.OrientationMode int orientation){
+    }
+
+    /**
+     * 动画过程中是否需要为子View开启硬件层。开启之后每一帧只改变层的属性，不需要重新绘制子View，适合旋转、透明度等效果；
+     * 平移这类本来就很便宜的效果开启硬件层反而浪费显存。只有MenuView开启了硬件层时才生效，默认需要
+     * @return 是否需要硬件层
+     *
+     * @see MenuView#setHardwareLayerEnabled(boolean)
+     */
+    public boolean wantsHardwareLayer(){
+        return true;
+    }
+
+    /**
+     * 换成别的效果之前调用，把这个效果修改过的属性恢复成默认值。默认恢复平移、透明度、缩放和旋转
+     * @param item 子View
+     */
+    public void clear(View item){
+        item.setTranslationX(0);
+        item.setTranslationY(0);
+        item.setAlpha(1);
+        item.setScaleX(1);
+        item.setScaleY(1);
+        item.setRotation(0);
+        item.setRotationX(0);
+        item.setRotationY(0);
+    }
+
+    // 旋转效果和缩放效果共用的变换中心
+    private static void applyEdgePivot(View item, int orientation){
+        if(orientation == MenuView.VERTICAL){
+            item.setPivotX(0);
+            item.setPivotY(0);
+        }else{
+            item.setPivotX(0);
+            item.setPivotY(item.getHeight());
+        }
+    }
+
+    private static final class RotationAnimator extends MenuItemAnimator {
+        @Override
+        public void onPrepare(View item, int orientation) {
+            applyEdgePivot(item, orientation);
+        }
+
+        @Override
+        public void apply(View item, float progress, int orientation) {
+            // 直接设置旋转角度，避免通过Property设置时的装箱
+            if(orientation == MenuView.VERTICAL){
+                item.setRotationY(90 * (1 - progress));
+            }else{
+                item.setRotationX(90 * (1 - progress));
+            }
+        }
+
+        @Override
+        public boolean isSchedulable() {
+            return true;
+        }
+
+        @Override
+        public void schedule(View item, ViewPropertyAnimator animator, float progress, int orientation) {
+            if(orientation == MenuView.VERTICAL){
+                animator.rotationY(90 * (1 - progress));
+            }else{
+                animator.rotationX(90 * (1 - progress));
+            }
+        }
+    }
+
+    private static final class TranslationAnimator extends MenuItemAnimator {
+        @Override
+        public void apply(View item, float progress, int orientation) {
+            if(orientation == MenuView.VERTICAL){
+                item.setTranslationX(getDistance(item, orientation) * (1 - progress));
+            }else{
+                item.setTranslationY(getDistance(item, orientation) * (1 - progress));
+            }
+        }
+
+        @Override
+        public boolean isSchedulable() {
+            return true;
+        }
+
+        @Override
+        public void schedule(View item, ViewPropertyAnimator animator, float progress, int orientation) {
+            if(orientation == MenuView.VERTICAL){
+                animator.translationX(getDistance(item, orientation) * (1 - progress));
+            }else{
+                animator.translationY(getDistance(item, orientation) * (1 - progress));
+            }
+        }
+
+        // 完全关闭时的平移距离
+        private static float getDistance(View item, int orientation){
+            if(orientation == MenuView.VERTICAL){
+                // 刚好移出容器的左边
+                return -item.getRight();
+            }
+            // 刚好移出容器的下边
+            View parent = (View) item.getParent();
+            return parent == null ? item.getHeight() : parent.getHeight() - item.getTop();
+        }
+
+        @Override
+        public boolean wantsHardwareLayer() {
+            return false;
+        }
+    }
+
+    private static final class AlphaAnimator extends MenuItemAnimator {
+        @Override
+        public void apply(View item, float progress, int orientation) {
+            item.setAlpha(progress);
+        }
+
+        @Override
+        public boolean isSchedulable() {
+            return true;
+        }
+
+        @Override
+        public void schedule(View item, ViewPropertyAnimator animator, float progress, int orientation) {
+            animator.alpha(progress);
+        }
+    }
+
+    private static final class ScaleAnimator extends MenuItemAnimator {
+        @Override
+        public void onPrepare(View item, int orientation) {
+            applyEdgePivot(item, orientation);
+        }
+
+        @Override
+        public void apply(View item, float progress, int orientation) {
+            item.setScaleX(progress);
+            item.setScaleY(progress);
+        }
+
+        @Override
+        public boolean isSchedulable() {
+            return true;
+        }
+
+        @Override
+        public void schedule(View item, ViewPropertyAnimator animator, float progress, int orientation) {
+            animator.scaleX(progress).scaleY(progress);
+        }
+
+        @Override
+        public boolean wantsHardwareLayer() {
+            // 缩放硬件层会让内容变模糊
+            return false;
+        }
+    }
+}
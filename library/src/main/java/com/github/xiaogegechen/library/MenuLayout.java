@@ -0,0 +1,663 @@
+package com.github.xiaogegechen.library;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import java.util.ArrayList;
+
+/**
+ * MenuView在虚拟化模式下使用的容器。只有可见区域内以及前后少量预取的子View会被绑定并添加进来，滑出可见区域的子View
+ * 会被回收进复用池，之后按照类型交给Adapter重新绑定。滑动和惯性滑动由{@link MenuScrollLayout}处理。
+ *
+ * @since v1.4.0
+ */
+final class MenuLayout extends MenuScrollLayout {
+
+    /**
+     * 子View的来源，由MenuView实现，负责布局下标和Adapter位置之间的转换
+     */
+    interface ItemSource {
+        /**
+         * @return 子View总数
+         */
+        int getItemCount();
+
+        /**
+         * @param layoutIndex 布局下标
+         * @return 这个位置上子View的类型
+         */
+        int getItemViewType(int layoutIndex);
+
+        /**
+         * 创建或者复用子View
+         * @param layoutIndex 布局下标
+         * @param convertView 复用池中同类型的子View，可能为null
+         * @param parent 父容器
+         * @return 绑定好数据的子View
+         */
+        View getView(int layoutIndex, View convertView, ViewGroup parent);
+
+        /**
+         * 数据改变之后重新绑定已经显示的子View
+         * @param view 原来的子View
+         * @param layoutIndex 布局下标
+         * @param payload 局部更新的信息，可能为null
+         * @param parent 父容器
+         * @return 重新绑定之后的子View，Adapter不能原地更新时可能是一个新的View
+         */
+        View rebindView(View view, int layoutIndex, Object payload, ViewGroup parent);
+
+        /**
+         * 子View绑定之后第一次完成布局时回调，用来恢复旋转中心和开闭状态
+         * @param view 子View
+         * @param layoutIndex 布局下标
+         */
+        void onViewAttached(View view, int layoutIndex);
+
+        /**
+         * 子View被回收进复用池时回调
+         * @param view 子View
+         */
+        void onViewRecycled(View view);
+    }
+
+    /**
+     * 复用池，按照类型存放回收的子View
+     */
+    private static final class RecyclePool {
+        // 每种类型最多缓存的个数
+        private static final int MAX_SCRAP_DEFAULT = 5;
+
+        private final SparseArray<ArrayList<View>> mScraps = new SparseArray<>();
+
+        View get(int viewType){
+            ArrayList<View> scrap = mScraps.get(viewType);
+            if(scrap == null || scrap.isEmpty()){
+                return null;
+            }
+            return scrap.remove(scrap.size() - 1);
+        }
+
+        void put(int viewType, View view){
+            ArrayList<View> scrap = mScraps.get(viewType);
+            if(scrap == null){
+                scrap = new ArrayList<>(MAX_SCRAP_DEFAULT);
+                mScraps.put(viewType, scrap);
+            }
+            if(scrap.size() < MAX_SCRAP_DEFAULT){
+                scrap.add(view);
+            }
+        }
+
+        void clear(){
+            mScraps.clear();
+        }
+    }
+
+    /**
+     * 记录子View的类型，回收时根据类型放进复用池。继承LinearLayout.LayoutParams，子View的layout_gravity和非虚拟化模式一样生效
+     */
+    static class LayoutParams extends LinearLayout.LayoutParams {
+        int viewType;
+        // 绑定之后还没有回调过ItemSource#onViewAttached()
+        boolean pendingAttach;
+
+        LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+        }
+
+        LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
+
+        LayoutParams(MarginLayoutParams source) {
+            super(source);
+            if(source instanceof LinearLayout.LayoutParams){
+                gravity = ((LinearLayout.LayoutParams) source).gravity;
+            }
+        }
+    }
+
+    private final RecyclePool mRecyclePool = new RecyclePool();
+    private ItemSource mItemSource;
+    // 可见区域之外每一侧最多保留的子View个数
+    private int mPrefetchCount;
+    // 第一个已添加的子View对应的布局下标
+    private int mFirstIndex = 0;
+    // 第一个子View的起点相对于可见区域起点的偏移，滑动之后总是小于等于0
+    private int mFirstOffset = 0;
+    // 数据改变之后需要回收所有子View重新绑定
+    private boolean mDataChanged = true;
+    // 非滑动方向上的测量规格，滑动过程中新添加的子View使用
+    private int mCrossMeasureSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+
+    MenuLayout(Context context, int orientation, int prefetchCount) {
+        super(context, orientation);
+        mPrefetchCount = prefetchCount;
+    }
+
+    void setItemSource(ItemSource itemSource) {
+        mItemSource = itemSource;
+        mRecyclePool.clear();
+        mFirstIndex = 0;
+        mFirstOffset = 0;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @return 第一个已添加的子View对应的布局下标
+     *
+     * @since v1.6.3
+     */
+    int getFirstIndex(){
+        return mFirstIndex;
+    }
+
+    /**
+     * @return 第一个子View的起点相对于可见区域起点的偏移
+     *
+     * @since v1.6.3
+     */
+    int getFirstOffset(){
+        return mFirstOffset;
+    }
+
+    /**
+     * 滑动到指定的子View，下一次布局时从它开始重新绑定
+     * @param layoutIndex 第一个子View的布局下标
+     * @param offset 第一个子View的起点相对于可见区域起点的偏移，不大于0
+     *
+     * @since v1.6.3
+     */
+    void scrollToItem(int layoutIndex, int offset){
+        stopScroll();
+        mFirstIndex = Math.max(0, layoutIndex);
+        mFirstOffset = Math.min(0, offset);
+        notifyDataSetChanged();
+    }
+
+    void setPrefetchCount(int prefetchCount) {
+        mPrefetchCount = prefetchCount;
+        requestLayout();
+    }
+
+    /**
+     * 数据改变，在下一次布局时回收所有子View并重新绑定，尽量保持当前的滑动位置
+     */
+    void notifyDataSetChanged(){
+        mDataChanged = true;
+        requestLayout();
+    }
+
+    /**
+     * 局部数据改变，只重新绑定区间内已经显示的子View
+     * @param layoutStart 起始布局下标
+     * @param itemCount 个数
+     * @param payload 局部更新的信息，可能为null
+     *
+     * @since v1.4.3
+     */
+    void onItemRangeChanged(int layoutStart, int itemCount, Object payload){
+        boolean replaced = false;
+        for (int layoutIndex = layoutStart; layoutIndex < layoutStart + itemCount; layoutIndex++) {
+            int childIndex = layoutIndex - mFirstIndex;
+            if(childIndex < 0 || childIndex >= getChildCount()){
+                continue;
+            }
+            View child = getChildAt(childIndex);
+            View newChild = mItemSource.rebindView(child, layoutIndex, payload, this);
+            if(newChild != child){
+                // 不能原地更新，替换成新的子View，旧的回收
+                recycleChildAt(childIndex);
+                addBoundView(newChild, mItemSource.getItemViewType(layoutIndex), childIndex);
+                replaced = true;
+            }
+        }
+        if(replaced){
+            requestLayout();
+        }
+    }
+
+    /**
+     * 插入了新的数据，已经显示的子View保持不动，只绑定插入到已绑定区间内的子View，最多绑定和原来区间一样多的个数，
+     * 其余的等布局时按需绑定
+     * @param layoutStart 起始布局下标
+     * @param itemCount 个数
+     *
+     * @since v1.4.3
+     */
+    void onItemRangeInserted(int layoutStart, int itemCount){
+        int childCount = getChildCount();
+        if(childCount == 0){
+            // 没有绑定任何子View（比如刚删除了所有可见的子View），只调整起点，布局时再绑定
+            if(layoutStart < mFirstIndex){
+                mFirstIndex += itemCount;
+            }
+        }else if(layoutStart < mFirstIndex){
+            // 插在可见区域之前，保持当前显示的内容不动
+            mFirstIndex += itemCount;
+        }else if(layoutStart < mFirstIndex + childCount){
+            // 插入位置之后原来绑定的子View个数，插入的子View最多绑定这么多个
+            int childStart = Math.max(0, layoutStart - mFirstIndex);
+            int bindCount = Math.min(itemCount, childCount - childStart);
+            if(bindCount < itemCount){
+                // 插入位置之后的子View和插入的子View之间会断开，先回收，布局时重新补充
+                for (int i = childCount - 1; i >= childStart; i--) {
+                    recycleChildAt(i);
+                }
+            }
+            for (int i = 0; i < bindCount; i++) {
+                int layoutIndex = layoutStart + i;
+                int viewType = mItemSource.getItemViewType(layoutIndex);
+                View child = mItemSource.getView(layoutIndex, mRecyclePool.get(viewType), this);
+                addBoundView(child, viewType, childStart + i);
+            }
+        }
+        requestLayout();
+    }
+
+    /**
+     * 删除了数据，回收区间内已经显示的子View，其余子View保持绑定
+     * @param layoutStart 起始布局下标
+     * @param itemCount 个数
+     *
+     * @since v1.4.3
+     */
+    void onItemRangeRemoved(int layoutStart, int itemCount){
+        for (int layoutIndex = layoutStart + itemCount - 1; layoutIndex >= layoutStart; layoutIndex--) {
+            int childIndex = layoutIndex - mFirstIndex;
+            if(childIndex >= 0 && childIndex < getChildCount()){
+                recycleChildAt(childIndex);
+            }
+        }
+        if(layoutStart < mFirstIndex){
+            mFirstIndex -= Math.min(itemCount, mFirstIndex - layoutStart);
+        }
+        requestLayout();
+    }
+
+    /**
+     * 移动了数据
+     * @param fromLayoutIndex 原布局下标
+     * @param toLayoutIndex 新布局下标
+     *
+     * @since v1.4.3
+     */
+    void onItemMoved(int fromLayoutIndex, int toLayoutIndex){
+        onItemRangeRemoved(fromLayoutIndex, 1);
+        onItemRangeInserted(toLayoutIndex, 1);
+    }
+
+    /**
+     * 拿到指定布局下标上的子View
+     * @param layoutIndex 布局下标
+     * @return 子View，如果这个位置没有被绑定（不在可见区域内）返回null
+     */
+    View getViewAt(int layoutIndex){
+        int index = layoutIndex - mFirstIndex;
+        if(index < 0 || index >= getChildCount()){
+            return null;
+        }
+        return getChildAt(index);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        boolean vertical = mOrientation == LinearLayout.VERTICAL;
+        int mainSpec = vertical ? heightMeasureSpec : widthMeasureSpec;
+        int crossSpec = vertical ? widthMeasureSpec : heightMeasureSpec;
+        int mainMode = MeasureSpec.getMode(mainSpec);
+        int mainSize = MeasureSpec.getSize(mainSpec);
+        int mainPadding = vertical ? getPaddingTop() + getPaddingBottom() : getPaddingLeft() + getPaddingRight();
+        int crossPadding = vertical ? getPaddingLeft() + getPaddingRight() : getPaddingTop() + getPaddingBottom();
+        mCrossMeasureSpec = crossSpec;
+
+        if(mDataChanged){
+            recycleAll();
+            mDataChanged = false;
+        }
+
+        // 测量已经添加的子View
+        int contentSize = 0;
+        int crossSize = 0;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            measureItem(child, mCrossMeasureSpec);
+            contentSize += getDecoratedSize(child);
+            crossSize = Math.max(crossSize, getDecoratedCrossSize(child));
+        }
+
+        // 子View不够填满可用空间时继续绑定，只绑定需要显示的部分
+        int available = mainMode == MeasureSpec.UNSPECIFIED ? getUnspecifiedAvailable(mainSize, vertical) : mainSize - mainPadding;
+        int count = mItemSource == null ? 0 : mItemSource.getItemCount();
+        while (contentSize + mFirstOffset < available && mFirstIndex + getChildCount() < count){
+            View child = obtainItem(mFirstIndex + getChildCount(), true);
+            contentSize += getDecoratedSize(child);
+            crossSize = Math.max(crossSize, getDecoratedCrossSize(child));
+        }
+
+        int main;
+        if(mainMode == MeasureSpec.EXACTLY){
+            main = mainSize;
+        }else if(mainMode == MeasureSpec.AT_MOST){
+            main = Math.min(mainSize, contentSize + mainPadding);
+        }else{
+            main = contentSize + mainPadding;
+        }
+        int cross = resolveSize(crossSize + crossPadding, crossSpec);
+        if(vertical){
+            setMeasuredDimension(cross, main);
+        }else{
+            setMeasuredDimension(main, cross);
+        }
+    }
+
+    /**
+     * 滑动方向上不限制大小时（比如放在ScrollView或者wrap_content的列表中）没有可见区域，绑定所有子View虚拟化就失去了意义。
+     * 这时使用父View给出的大小提示，没有提示时最多填满一屏，测量出的大小也不会超过一屏，剩下的子View由容器自己滑动显示
+     * @param mainSize 测量规格中的大小提示
+     * @param vertical 是否是竖直方向
+     * @return 最多填充的长度
+     *
+     * @since v1.7.0
+     */
+    private int getUnspecifiedAvailable(int mainSize, boolean vertical){
+        if(mainSize > 0){
+            return mainSize;
+        }
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        return vertical ? metrics.heightPixels : metrics.widthPixels;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        // 已有的子View依次排列，然后补充或者回收
+        int start = getViewportStart() + mFirstOffset;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            layoutItem(child, mFirstIndex + i, start);
+            start += getDecoratedSize(child);
+        }
+        fill();
+        fixGap();
+    }
+
+    @Override
+    int scrollBy(int delta){
+        int childCount = getChildCount();
+        if(childCount == 0 || delta == 0 || mItemSource == null){
+            return 0;
+        }
+        int count = mItemSource.getItemCount();
+        int viewportStart = getViewportStart();
+        int viewportEnd = getViewportEnd();
+        if(delta > 0){
+            // 保证滑动之后末尾没有空白
+            while (getEnd(getChildAt(getChildCount() - 1)) - delta < viewportEnd && mFirstIndex + getChildCount() < count){
+                addItem(mFirstIndex + getChildCount(), true);
+            }
+            if(mFirstIndex + getChildCount() == count){
+                int lastEnd = getEnd(getChildAt(getChildCount() - 1));
+                delta = Math.min(delta, Math.max(0, lastEnd - viewportEnd));
+            }
+        }else{
+            // 保证滑动之后开头没有空白
+            while (getStart(getChildAt(0)) - delta > viewportStart && mFirstIndex > 0){
+                mFirstIndex --;
+                addItem(mFirstIndex, false);
+            }
+            if(mFirstIndex == 0){
+                int firstStart = getStart(getChildAt(0));
+                delta = Math.max(delta, Math.min(0, firstStart - viewportStart));
+            }
+        }
+        if(delta != 0){
+            offsetChildren(-delta);
+            fill();
+            invalidate();
+        }
+        return delta;
+    }
+
+    @Override
+    boolean canScroll(){
+        int childCount = getChildCount();
+        if(childCount == 0 || mItemSource == null){
+            return false;
+        }
+        // 还有没绑定的子View，或者已经绑定的超出了可见区域
+        return mFirstIndex > 0 || mFirstIndex + childCount < mItemSource.getItemCount()
+                || getStart(getChildAt(0)) < getViewportStart() || getEnd(getChildAt(childCount - 1)) > getViewportEnd();
+    }
+
+    // 回收可见区域外多余的子View，然后在两端补充子View直到填满可见区域和预取区域
+    private void fill(){
+        if(mItemSource == null){
+            return;
+        }
+        int count = mItemSource.getItemCount();
+        int viewportStart = getViewportStart();
+        int viewportEnd = getViewportEnd();
+
+        // 回收末尾多余的子View
+        while (countHiddenAtEnd(viewportEnd) > mPrefetchCount){
+            recycleChildAt(getChildCount() - 1);
+        }
+        // 回收开头多余的子View
+        while (countHiddenAtStart(viewportStart) > mPrefetchCount){
+            // 先更新下标，回收回调中拿到的布局下标才是对的
+            mFirstIndex ++;
+            recycleChildAt(0);
+        }
+
+        // 向后填充
+        int hidden = countHiddenAtEnd(viewportEnd);
+        while (mFirstIndex + getChildCount() < count){
+            int childCount = getChildCount();
+            int lastEnd = childCount == 0 ? viewportStart + mFirstOffset : getEnd(getChildAt(childCount - 1));
+            if(lastEnd >= viewportEnd){
+                if(hidden >= mPrefetchCount){
+                    break;
+                }
+                hidden ++;
+            }
+            addItem(mFirstIndex + childCount, true);
+        }
+
+        // 向前填充
+        hidden = countHiddenAtStart(viewportStart);
+        while (mFirstIndex > 0 && getChildCount() > 0){
+            int firstStart = getStart(getChildAt(0));
+            if(firstStart <= viewportStart){
+                if(hidden >= mPrefetchCount){
+                    break;
+                }
+                hidden ++;
+            }
+            mFirstIndex --;
+            addItem(mFirstIndex, false);
+        }
+
+        if(getChildCount() > 0){
+            mFirstOffset = getStart(getChildAt(0)) - viewportStart;
+        }else{
+            mFirstOffset = 0;
+        }
+    }
+
+    // 数据变少或者尺寸变大之后末尾可能出现空白，把内容向后移动填补空白
+    private void fixGap(){
+        int childCount = getChildCount();
+        if(childCount == 0 || mFirstIndex + childCount < mItemSource.getItemCount()){
+            return;
+        }
+        int viewportStart = getViewportStart();
+        int gap = getViewportEnd() - getEnd(getChildAt(childCount - 1));
+        if(gap <= 0){
+            return;
+        }
+        int shift = mFirstIndex > 0 ? gap : Math.min(gap, viewportStart - getStart(getChildAt(0)));
+        if(shift > 0){
+            offsetChildren(shift);
+            fill();
+        }
+        // 内容比可见区域还小时对齐到起点
+        int firstStart = getStart(getChildAt(0));
+        if(mFirstIndex == 0 && firstStart > viewportStart){
+            offsetChildren(viewportStart - firstStart);
+            mFirstOffset = 0;
+        }
+    }
+
+    private int countHiddenAtEnd(int viewportEnd){
+        int hidden = 0;
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            if(getStart(getChildAt(i)) < viewportEnd){
+                break;
+            }
+            hidden ++;
+        }
+        return hidden;
+    }
+
+    private int countHiddenAtStart(int viewportStart){
+        int hidden = 0;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            if(getEnd(getChildAt(i)) > viewportStart){
+                break;
+            }
+            hidden ++;
+        }
+        return hidden;
+    }
+
+    // 绑定子View，添加并测量，但是不布局
+    private View obtainItem(int layoutIndex, boolean atEnd){
+        int viewType = mItemSource.getItemViewType(layoutIndex);
+        View convertView = mRecyclePool.get(viewType);
+        View child = mItemSource.getView(layoutIndex, convertView, this);
+        // 复用了回收的子View算作命中
+        ViewMetrics.recordCache(ViewMetrics.VIEW_MENU_VIEW, convertView != null && child == convertView);
+        addBoundView(child, viewType, atEnd ? -1 : 0);
+        return child;
+    }
+
+    // 添加已经绑定好的子View并测量
+    private void addBoundView(View child, int viewType, int childIndex){
+        ViewGroup.LayoutParams params = child.getLayoutParams();
+        LayoutParams lp;
+        if(params == null){
+            lp = generateDefaultLayoutParams();
+        }else if(!checkLayoutParams(params)){
+            lp = generateLayoutParams(params);
+        }else{
+            lp = (LayoutParams) params;
+        }
+        lp.viewType = viewType;
+        lp.pendingAttach = true;
+        // 滑动过程中添加子View，不需要触发整个View树的重新布局
+        addViewInLayout(child, childIndex, lp, true);
+        measureItem(child, mCrossMeasureSpec);
+    }
+
+    // 绑定子View，并且紧接着两端已有的子View布局
+    private void addItem(int layoutIndex, boolean atEnd){
+        View child = obtainItem(layoutIndex, atEnd);
+        int start;
+        if(atEnd){
+            int childCount = getChildCount();
+            start = childCount == 1 ? getViewportStart() + mFirstOffset : getEnd(getChildAt(childCount - 2));
+        }else{
+            start = getStart(getChildAt(1)) - getDecoratedSize(child);
+        }
+        layoutItem(child, layoutIndex, start);
+    }
+
+    private void recycleChildAt(int index){
+        View child = getChildAt(index);
+        removeViewInLayout(child);
+        mItemSource.onViewRecycled(child);
+        mRecyclePool.put(((LayoutParams) child.getLayoutParams()).viewType, child);
+    }
+
+    private void recycleAll(){
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            recycleChildAt(i);
+        }
+        int count = mItemSource == null ? 0 : mItemSource.getItemCount();
+        if(mFirstIndex >= count){
+            mFirstIndex = Math.max(0, count - 1);
+            mFirstOffset = 0;
+        }
+    }
+
+    // start是包含margin的起点
+    private void layoutItem(View child, int layoutIndex, int start){
+        layoutChild(child, start);
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        if(lp.pendingAttach){
+            lp.pendingAttach = false;
+            mItemSource.onViewAttached(child, layoutIndex);
+        }
+    }
+
+    private void offsetChildren(int delta){
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if(mOrientation == LinearLayout.VERTICAL){
+                child.offsetTopAndBottom(delta);
+            }else{
+                child.offsetLeftAndRight(delta);
+            }
+        }
+    }
+
+    private int getStart(View child){
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        return mOrientation == LinearLayout.VERTICAL ? child.getTop() - lp.topMargin : child.getLeft() - lp.leftMargin;
+    }
+
+    private int getEnd(View child){
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        return mOrientation == LinearLayout.VERTICAL ? child.getBottom() + lp.bottomMargin : child.getRight() + lp.rightMargin;
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        if(mOrientation == LinearLayout.VERTICAL){
+            return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
+        }
+        return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        if(p instanceof MarginLayoutParams){
+            return new LayoutParams((MarginLayoutParams) p);
+        }
+        return new LayoutParams(p);
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
+}
@@ -0,0 +1,188 @@
+package com.github.xiaogegechen.library;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+/**
+ * MenuView在非虚拟化模式下使用的容器，代替原来ScrollView套LinearLayout的两层结构。所有子View沿着一个方向排列，
+ * 测量和布局都只遍历一次子View，不支持weight（原来LinearLayout在ScrollView中weight本来也不起作用），非滑动方向上
+ * 的layout_gravity和LinearLayout一样生效。滑动和惯性滑动由{@link MenuScrollLayout}处理，通过scrollTo()移动内容，
+ * 子View的位置不变
+ *
+ * @since v1.6.0
+ */
+final class MenuLinearLayout extends MenuScrollLayout {
+
+    // 所有子View沿滑动方向的总长度，不包括padding
+    private int mContentSize = 0;
+    // 恢复状态时还没有布局，先记下滑动距离，布局之后再滑动
+    private int mPendingScroll = -1;
+
+    MenuLinearLayout(Context context, int orientation) {
+        super(context, orientation);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        boolean vertical = mOrientation == LinearLayout.VERTICAL;
+        int mainSpec = vertical ? heightMeasureSpec : widthMeasureSpec;
+        int crossSpec = vertical ? widthMeasureSpec : heightMeasureSpec;
+        int mainMode = MeasureSpec.getMode(mainSpec);
+        int mainSize = MeasureSpec.getSize(mainSpec);
+        int mainPadding = vertical ? getPaddingTop() + getPaddingBottom() : getPaddingLeft() + getPaddingRight();
+        int crossPadding = vertical ? getPaddingLeft() + getPaddingRight() : getPaddingTop() + getPaddingBottom();
+
+        // 每个子View只测量一次
+        int contentSize = 0;
+        int crossSize = 0;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if(child.getVisibility() == GONE){
+                continue;
+            }
+            measureItem(child, crossSpec);
+            contentSize += getDecoratedSize(child);
+            crossSize = Math.max(crossSize, getDecoratedCrossSize(child));
+        }
+        mContentSize = contentSize;
+
+        int main;
+        if(mainMode == MeasureSpec.EXACTLY){
+            main = mainSize;
+        }else if(mainMode == MeasureSpec.AT_MOST){
+            main = Math.min(mainSize, contentSize + mainPadding);
+        }else{
+            main = contentSize + mainPadding;
+        }
+        int cross = resolveSize(crossSize + crossPadding, crossSpec);
+        if(vertical){
+            setMeasuredDimension(cross, main);
+        }else{
+            setMeasuredDimension(main, cross);
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        int start = getViewportStart();
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = getChildAt(i);
+            if(child.getVisibility() == GONE){
+                continue;
+            }
+            layoutChild(child, start);
+            start += getDecoratedSize(child);
+        }
+        // 内容变少之后滑动位置可能超出范围，恢复状态时滑动到记下的位置
+        int scroll = getScroll();
+        int clamped = clampScroll(mPendingScroll >= 0 ? mPendingScroll : scroll);
+        mPendingScroll = -1;
+        if(clamped != scroll){
+            setScroll(clamped);
+        }
+    }
+
+    @Override
+    int scrollBy(int delta){
+        int scroll = getScroll();
+        int target = clampScroll(scroll + delta);
+        if(target != scroll){
+            setScroll(target);
+        }
+        return target - scroll;
+    }
+
+    @Override
+    boolean canScroll(){
+        return mContentSize > getViewportEnd() - getViewportStart();
+    }
+
+    /**
+     * @return 当前沿滑动方向的滑动距离
+     */
+    int getScroll(){
+        return mOrientation == LinearLayout.VERTICAL ? getScrollY() : getScrollX();
+    }
+
+    /**
+     * 滑动到指定位置，超出范围时取边界
+     * @param scroll 沿滑动方向的滑动距离
+     */
+    void scrollToPosition(int scroll){
+        stopScroll();
+        setScroll(clampScroll(scroll));
+    }
+
+    /**
+     * 恢复状态时使用，下一次布局之后滑动到指定位置
+     * @param scroll 沿滑动方向的滑动距离
+     *
+     * @since v1.6.3
+     */
+    void restoreScroll(int scroll){
+        stopScroll();
+        mPendingScroll = Math.max(0, scroll);
+        requestLayout();
+    }
+
+    private void setScroll(int scroll){
+        if(mOrientation == LinearLayout.VERTICAL){
+            scrollTo(0, scroll);
+        }else{
+            scrollTo(scroll, 0);
+        }
+    }
+
+    private int clampScroll(int scroll){
+        int max = Math.max(0, mContentSize - (getViewportEnd() - getViewportStart()));
+        return Math.max(0, Math.min(scroll, max));
+    }
+
+    @Override
+    protected int computeHorizontalScrollRange() {
+        return mOrientation == LinearLayout.VERTICAL ? super.computeHorizontalScrollRange() : mContentSize;
+    }
+
+    @Override
+    protected int computeVerticalScrollRange() {
+        return mOrientation == LinearLayout.VERTICAL ? mContentSize : super.computeVerticalScrollRange();
+    }
+
+    @Override
+    public boolean shouldDelayChildPressedState() {
+        // 和ScrollView一样，可以滑动的容器延迟子View的按下状态
+        return true;
+    }
+
+    // 和LinearLayout默认的LayoutParams一致，保证子View的尺寸和原来相同
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        if(mOrientation == LinearLayout.VERTICAL){
+            return new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
+        }
+        return new LinearLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LinearLayout.LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        if(p instanceof MarginLayoutParams){
+            return new LinearLayout.LayoutParams((MarginLayoutParams) p);
+        }
+        return new LinearLayout.LayoutParams(p);
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof MarginLayoutParams;
+    }
+}
@@ -0,0 +1,322 @@
+package com.github.xiaogegechen.library;
+
+import android.content.Context;
+import android.os.Build;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.LinearLayout;
+import android.widget.OverScroller;
+
+/**
+ * MenuView中子View容器的基类，沿着一个方向排列子View，自己处理拖动和惯性滑动，不需要再套一层ScrollView。
+ * 子类只需要实现{@link #scrollBy(int)}和{@link #canScroll()}
+ *
+ * @since v1.6.0
+ */
+abstract class MenuScrollLayout extends ViewGroup {
+
+    private static final int INVALID_POINTER = -1;
+
+    // 方向
+    final int mOrientation;
+
+    // 滑动相关
+    private final OverScroller mScroller;
+    private VelocityTracker mVelocityTracker;
+    private final int mTouchSlop;
+    private final int mMinFlingVelocity;
+    private final int mMaxFlingVelocity;
+    private boolean mIsBeingDragged = false;
+    private int mLastMotion;
+    private int mActivePointerId = INVALID_POINTER;
+    private int mLastFlingPosition;
+
+    MenuScrollLayout(Context context, int orientation) {
+        super(context);
+        mOrientation = orientation;
+        mScroller = new OverScroller(context);
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+    }
+
+    /**
+     * 沿滑动方向滑动内容
+     * @param delta 滑动距离，大于0表示向后滑动
+     * @return 实际滑动的距离，到达边界时比delta小
+     */
+    abstract int scrollBy(int delta);
+
+    /**
+     * @return 内容是否超出可见区域，可以滑动。内容能完全显示时不拦截手势，交给子View或者外层可以滑动的父View处理
+     *
+     * @since v1.7.0
+     */
+    abstract boolean canScroll();
+
+    /**
+     * 停止正在进行的惯性滑动
+     */
+    void stopScroll(){
+        if(!mScroller.isFinished()){
+            mScroller.abortAnimation();
+        }
+    }
+
+    // 测量子View，滑动方向上不限制大小，和ScrollView一样
+    void measureItem(View child, int crossMeasureSpec){
+        MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+        int widthSpec;
+        int heightSpec;
+        if(mOrientation == LinearLayout.VERTICAL){
+            widthSpec = getChildMeasureSpec(crossMeasureSpec, getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin, lp.width);
+            heightSpec = lp.height >= 0 ? MeasureSpec.makeMeasureSpec(lp.height, MeasureSpec.EXACTLY) : MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        }else{
+            widthSpec = lp.width >= 0 ? MeasureSpec.makeMeasureSpec(lp.width, MeasureSpec.EXACTLY) : MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+            heightSpec = getChildMeasureSpec(crossMeasureSpec, getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin, lp.height);
+        }
+        child.measure(widthSpec, heightSpec);
+    }
+
+    // start是包含margin的起点，非滑动方向上和LinearLayout一样按照LinearLayout.LayoutParams#gravity对齐
+    void layoutChild(View child, int start){
+        MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+        int gravity = lp instanceof LinearLayout.LayoutParams ? ((LinearLayout.LayoutParams) lp).gravity : -1;
+        int width = child.getMeasuredWidth();
+        int height = child.getMeasuredHeight();
+        if(mOrientation == LinearLayout.VERTICAL){
+            int left;
+            int horizontalGravity = getAbsoluteHorizontalGravity(gravity < 0 ? Gravity.START : gravity);
+            if(horizontalGravity == Gravity.CENTER_HORIZONTAL){
+                int space = getWidth() - getPaddingLeft() - getPaddingRight();
+                left = getPaddingLeft() + (space - width) / 2 + lp.leftMargin - lp.rightMargin;
+            }else if(horizontalGravity == Gravity.RIGHT){
+                left = getWidth() - getPaddingRight() - lp.rightMargin - width;
+            }else{
+                left = getPaddingLeft() + lp.leftMargin;
+            }
+            int top = start + lp.topMargin;
+            child.layout(left, top, left + width, top + height);
+        }else{
+            int top;
+            int verticalGravity = gravity < 0 ? Gravity.TOP : gravity & Gravity.VERTICAL_GRAVITY_MASK;
+            if(verticalGravity == Gravity.CENTER_VERTICAL){
+                int space = getHeight() - getPaddingTop() - getPaddingBottom();
+                top = getPaddingTop() + (space - height) / 2 + lp.topMargin - lp.bottomMargin;
+            }else if(verticalGravity == Gravity.BOTTOM){
+                top = getHeight() - getPaddingBottom() - lp.bottomMargin - height;
+            }else{
+                top = getPaddingTop() + lp.topMargin;
+            }
+            int left = start + lp.leftMargin;
+            child.layout(left, top, left + width, top + height);
+        }
+    }
+
+    // start和end按照布局方向换成left和right，API 17之前没有RTL，START就是LEFT
+    private int getAbsoluteHorizontalGravity(int gravity){
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1){
+            gravity = Gravity.getAbsoluteGravity(gravity, getLayoutDirection());
+        }else{
+            gravity = Gravity.getAbsoluteGravity(gravity, 0);
+        }
+        return gravity & Gravity.HORIZONTAL_GRAVITY_MASK;
+    }
+
+    int getDecoratedSize(View child){
+        MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+        if(mOrientation == LinearLayout.VERTICAL){
+            return child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
+        }
+        return child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
+    }
+
+    int getDecoratedCrossSize(View child){
+        MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+        if(mOrientation == LinearLayout.VERTICAL){
+            return child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
+        }
+        return child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
+    }
+
+    int getViewportStart(){
+        return mOrientation == LinearLayout.VERTICAL ? getPaddingTop() : getPaddingLeft();
+    }
+
+    int getViewportEnd(){
+        return mOrientation == LinearLayout.VERTICAL ? getHeight() - getPaddingBottom() : getWidth() - getPaddingRight();
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        int action = ev.getActionMasked();
+        if(action == MotionEvent.ACTION_MOVE && mIsBeingDragged){
+            return true;
+        }
+        switch (action){
+            case MotionEvent.ACTION_DOWN:
+                mLastMotion = getMotion(ev, 0);
+                mActivePointerId = ev.getPointerId(0);
+                obtainVelocityTracker().addMovement(ev);
+                // 惯性滑动过程中按下直接拦截
+                mIsBeingDragged = !mScroller.isFinished();
+                break;
+            case MotionEvent.ACTION_MOVE:
+                int pointerIndex = ev.findPointerIndex(mActivePointerId);
+                if(pointerIndex < 0){
+                    break;
+                }
+                int motion = getMotion(ev, pointerIndex);
+                if(Math.abs(motion - mLastMotion) > mTouchSlop && canScroll()){
+                    mIsBeingDragged = true;
+                    mLastMotion = motion;
+                    disallowParentIntercept();
+                }
+                obtainVelocityTracker().addMovement(ev);
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                endDrag();
+                break;
+            default:
+                break;
+        }
+        return mIsBeingDragged;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        obtainVelocityTracker().addMovement(ev);
+        switch (ev.getActionMasked()){
+            case MotionEvent.ACTION_DOWN:
+                if(getChildCount() == 0){
+                    return false;
+                }
+                stopScroll();
+                mLastMotion = getMotion(ev, 0);
+                mActivePointerId = ev.getPointerId(0);
+                break;
+            case MotionEvent.ACTION_MOVE:
+                int pointerIndex = ev.findPointerIndex(mActivePointerId);
+                if(pointerIndex < 0){
+                    break;
+                }
+                int motion = getMotion(ev, pointerIndex);
+                int delta = mLastMotion - motion;
+                if(!mIsBeingDragged && Math.abs(delta) > mTouchSlop && canScroll()){
+                    mIsBeingDragged = true;
+                    disallowParentIntercept();
+                    delta += delta > 0 ? -mTouchSlop : mTouchSlop;
+                }
+                if(mIsBeingDragged){
+                    mLastMotion = motion;
+                    scrollBy(delta);
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if(mIsBeingDragged){
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+                    float velocity = mOrientation == LinearLayout.VERTICAL
+                            ? mVelocityTracker.getYVelocity(mActivePointerId)
+                            : mVelocityTracker.getXVelocity(mActivePointerId);
+                    if(Math.abs(velocity) > mMinFlingVelocity){
+                        fling((int) -velocity);
+                    }
+                }
+                endDrag();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                endDrag();
+                break;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                int index = ev.getActionIndex();
+                mLastMotion = getMotion(ev, index);
+                mActivePointerId = ev.getPointerId(index);
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
+                int activeIndex = ev.findPointerIndex(mActivePointerId);
+                if(activeIndex >= 0){
+                    mLastMotion = getMotion(ev, activeIndex);
+                }
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    @Override
+    public void computeScroll() {
+        if(mScroller.computeScrollOffset()){
+            int position = mOrientation == LinearLayout.VERTICAL ? mScroller.getCurrY() : mScroller.getCurrX();
+            int delta = position - mLastFlingPosition;
+            mLastFlingPosition = position;
+            if(scrollBy(delta) != delta){
+                // 到达边界
+                mScroller.abortAnimation();
+            }else{
+                postInvalidateOnAnimation();
+            }
+        }
+    }
+
+    private void fling(int velocity){
+        mLastFlingPosition = 0;
+        if(mOrientation == LinearLayout.VERTICAL){
+            mScroller.fling(0, 0, 0, velocity, 0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }else{
+            mScroller.fling(0, 0, velocity, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 0);
+        }
+        postInvalidateOnAnimation();
+    }
+
+    private int getMotion(MotionEvent ev, int pointerIndex){
+        return (int) (mOrientation == LinearLayout.VERTICAL ? ev.getY(pointerIndex) : ev.getX(pointerIndex));
+    }
+
+    private void onSecondaryPointerUp(MotionEvent ev){
+        int pointerIndex = ev.getActionIndex();
+        if(ev.getPointerId(pointerIndex) == mActivePointerId){
+            // 抬起的是当前手指，换成另一个手指
+            int newPointerIndex = pointerIndex == 0 ? 1 : 0;
+            mLastMotion = getMotion(ev, newPointerIndex);
+            mActivePointerId = ev.getPointerId(newPointerIndex);
+            if(mVelocityTracker != null){
+                mVelocityTracker.clear();
+            }
+        }
+    }
+
+    private void disallowParentIntercept(){
+        ViewParent parent = getParent();
+        if(parent != null){
+            parent.requestDisallowInterceptTouchEvent(true);
+        }
+    }
+
+    private VelocityTracker obtainVelocityTracker(){
+        if(mVelocityTracker == null){
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        return mVelocityTracker;
+    }
+
+    private void endDrag(){
+        mIsBeingDragged = false;
+        mActivePointerId = INVALID_POINTER;
+        if(mVelocityTracker != null){
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+}
@@ -2,49 +2,94 @@ package com.github.xiaogegechen.library;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
-import android.animation.ObjectAnimator;
+import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.Process;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.util.Property;
+import android.util.LongSparseArray;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewPropertyAnimator;
 import android.view.animation.AccelerateDecelerateInterpolator;
 import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
 import android.widget.FrameLayout;
-import android.widget.HorizontalScrollView;
 import android.widget.LinearLayout;
-import android.widget.ScrollView;
 
 import androidx.annotation.IntDef;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 一个在侧边栏类似ListView的ViewGroup，可以展开和闭合并带动画效果，由于携带多个View对象，所以适用于比较少的View列表的
- * 展示。
+ * 一个在侧边栏类似ListView的ViewGroup，可以展开和闭合并带动画效果，由于携带多个View对象，所以默认适用于比较少的View列表的
+ * 展示。子View很多时可以开启虚拟化模式，只绑定可见区域内的子View，滑出的子View会被回收复用。
  * @attr ref R.styleable.MenuView_menu_view_orientation 方向，纵向或者横向
  * @attr ref R.styleable.MenuView_menu_view_reverse 方向是否倒置
  * @attr ref R.styleable.MenuView_menu_view_animation_duration 动画时长
+ * @attr ref R.styleable.MenuView_menu_view_virtualized 是否开启虚拟化模式
+ * @attr ref R.styleable.MenuView_menu_view_prefetch_count 虚拟化模式下可见区域两侧预取的子View个数
+ * @attr ref R.styleable.MenuView_menu_view_animation_mode 动画模式，依次执行或者错开重叠执行
+ * @attr ref R.styleable.MenuView_menu_view_stagger_offset 错开模式下相邻子View开始动画的间隔
+ * @attr ref R.styleable.MenuView_menu_view_max_total_duration 错开模式下整个动画的最长时长
+ * @attr ref R.styleable.MenuView_menu_view_hardware_layer 动画过程中是否为正在动画的子View开启硬件层
+ * @attr ref R.styleable.MenuView_menu_view_async_populate 是否异步填充子View
+ * @attr ref R.styleable.MenuView_menu_view_choice_mode 选择模式，不可选、单选或者多选
+ * @attr ref R.styleable.MenuView_menu_view_item_animator 子View展开和关闭的效果，旋转、平移、透明度或者缩放
+ * @attr ref R.styleable.MenuView_menu_view_scheduled_animation 是否在动画开始时一次性预排所有子View的动画
+ * @attr ref R.styleable.MenuView_menu_view_lazy 是否延迟创建容器和子View，直到第一次使用
+ * @attr ref R.styleable.MenuView_menu_view_placeholder_width 延迟创建时wrap_content测量出的宽度
+ * @attr ref R.styleable.MenuView_menu_view_placeholder_height 延迟创建时wrap_content测量出的高度
  *
  * @since v1.3.0
  */
 public class MenuView extends FrameLayout {
 
     private static final String TAG = "MenuView";
+    // Trace区间名
+    private static final String TRACE_MEASURE = "MenuView#onMeasure";
+    private static final String TRACE_LAYOUT = "MenuView#onLayout";
+    private static final String TRACE_DRAW = "MenuView#dispatchDraw";
+    private static final String TRACE_ANIMATION_FRAME = "MenuView#animationFrame";
+    private static final String TRACE_SCHEDULE_ANIMATION = "MenuView#scheduleAnimation";
 
     /**
      * Adapter类，负责子View的创建和点击事件等。和ListView的Adapter使用方式类似，但是需要注意getView()方法不要复用
-     * 之前的View，因为在之后的打开和关闭动画中都要直接操作这些View。
+     * 之前的View，因为在之后的打开和关闭动画中都要直接操作这些View。虚拟化模式下可以重写
+     * {@link #getView(int, View, ViewGroup)}复用回收的View。数据改变之后通过notifyXXX()方法通知MenuView只更新
+     * 受影响的子View。
      */
     public static abstract class Adapter {
+
+        /**
+         * 没有稳定ID
+         *
+         * @since v1.4.3
+         */
+        public static final long NO_ID = -1;
+
+        // 观察这个Adapter的MenuView
+        private MenuView mObserver;
+
         /**
          * 创建子View，这里需要每一个position处都返回一个新的View，因为之后的动画需要单独操作每一个View，因此不使用
          * View的复用机制
          * @param position 子View的位置
-         * @param parent 这个View的父ViewGroup，如果没有特殊情况，一定是一个LinearLayout
+         * @param parent 这个View的父ViewGroup，子View默认使用LinearLayout.LayoutParams
          * @return 指定位置上的View，一定是一个新的View对象，不能复用之前的View
          */
         public abstract View getView(int position, ViewGroup parent);
@@ -55,15 +100,231 @@ public class MenuView extends FrameLayout {
          */
         public abstract int getCount();
 
+        /**
+         * 虚拟化模式下创建或者复用子View。convertView是之前滑出可见区域被回收的同类型子View，重新绑定数据后直接返回
+         * 即可。默认忽略convertView，调用{@link #getView(int, ViewGroup)}创建新的View
+         * @param position 子View的位置
+         * @param convertView 可以复用的子View，可能为null
+         * @param parent 这个View的父ViewGroup
+         * @return 指定位置上的View
+         *
+         * @since v1.4.0
+         */
+        public View getView(int position, View convertView, ViewGroup parent){
+            return getView(position, parent);
+        }
+
+        /**
+         * 拿到子View的类型，虚拟化模式下只有同类型的子View会被复用
+         * @param position 子View的位置
+         * @return 子View的类型
+         *
+         * @since v1.4.0
+         */
+        public int getItemViewType(int position){
+            return 0;
+        }
+
+        /**
+         * 是否有稳定的ID，有稳定ID时{@link #notifyDataSetChanged()}会按照ID保留子View的开闭状态，非虚拟化模式下还会
+         * 尝试复用相同ID的子View
+         * @return 是否有稳定的ID
+         *
+         * @since v1.4.3
+         */
+        public boolean hasStableIds(){
+            return false;
+        }
+
+        /**
+         * 拿到子View的ID，只有{@link #hasStableIds()}返回true时才会被调用
+         * @param position 子View的位置
+         * @return 子View的ID
+         *
+         * @since v1.4.3
+         */
+        public long getItemId(int position){
+            return NO_ID;
+        }
+
+        /**
+         * 数据改变之后原地更新已经存在的子View，比如只刷新一个角标。不能原地更新时返回false，MenuView会通过
+         * {@link #getView(int, View, ViewGroup)}拿到新的子View替换原来的。payload是{@link #PAYLOAD_SELECTION}时
+         * 返回值会被忽略，选中状态改变永远不会替换子View
+         * @param position 子View的位置
+         * @param view 原来的子View
+         * @param payload 通过{@link #notifyItemChanged(int, Object)}传入的局部更新信息，完整更新时为null
+         * @return 是否已经原地更新
+         *
+         * @since v1.4.3
+         */
+        public boolean onBindView(int position, View view, Object payload){
+            return false;
+        }
+
+        /**
+         * 异步填充时这个位置的子View能否在后台线程创建。返回true时{@link #getView(int, ViewGroup)}会在后台线程被调用，
+         * 只能做inflate之类不依赖主线程的工作，不能创建Handler、启动动画或者修改已经显示的View
+         * @param position 子View的位置
+         * @return 能否在后台线程创建，默认false，在主线程空闲时分批创建
+         *
+         * @since v1.4.4
+         */
+        public boolean canCreateViewInBackground(int position){
+            return false;
+        }
+
+        /**
+         * 整个数据集都改变了，所有子View重新绑定
+         *
+         * @since v1.4.3
+         */
+        public final void notifyDataSetChanged(){
+            if(mObserver != null){
+                mObserver.onDataSetChanged();
+            }
+        }
+
+        /**
+         * 某个位置的数据改变了
+         * @param position 位置
+         *
+         * @since v1.4.3
+         */
+        public final void notifyItemChanged(int position){
+            notifyItemRangeChanged(position, 1, null);
+        }
+
+        /**
+         * 某个位置的数据改变了，并且带有局部更新的信息
+         * @param position 位置
+         * @param payload 局部更新的信息，会传给{@link #onBindView(int, View, Object)}
+         *
+         * @since v1.4.3
+         */
+        public final void notifyItemChanged(int position, Object payload){
+            notifyItemRangeChanged(position, 1, payload);
+        }
+
+        /**
+         * 一段连续位置的数据改变了
+         * @param positionStart 起始位置
+         * @param itemCount 个数
+         * @param payload 局部更新的信息，可以为null
+         *
+         * @since v1.4.3
+         */
+        public final void notifyItemRangeChanged(int positionStart, int itemCount, Object payload){
+            if(mObserver != null){
+                mObserver.onItemRangeChanged(positionStart, itemCount, payload);
+            }
+        }
+
+        /**
+         * 在某个位置插入了数据
+         * @param position 位置
+         *
+         * @since v1.4.3
+         */
+        public final void notifyItemInserted(int position){
+            notifyItemRangeInserted(position, 1);
+        }
+
+        /**
+         * 从某个位置开始插入了一段数据
+         * @param positionStart 起始位置
+         * @param itemCount 个数
+         *
+         * @since v1.4.3
+         */
+        public final void notifyItemRangeInserted(int positionStart, int itemCount){
+            if(mObserver != null){
+                mObserver.onItemRangeInserted(positionStart, itemCount);
+            }
+        }
+
+        /**
+         * 删除了某个位置的数据
+         * @param position 位置
+         *
+         * @since v1.4.3
+         */
+        public final void notifyItemRemoved(int position){
+            notifyItemRangeRemoved(position, 1);
+        }
+
+        /**
+         * 从某个位置开始删除了一段数据
+         * @param positionStart 起始位置
+         * @param itemCount 个数
+         *
+         * @since v1.4.3
+         */
+        public final void notifyItemRangeRemoved(int positionStart, int itemCount){
+            if(mObserver != null){
+                mObserver.onItemRangeRemoved(positionStart, itemCount);
+            }
+        }
+
+        /**
+         * 某个位置的数据移动到了另一个位置
+         * @param fromPosition 原位置
+         * @param toPosition 新位置
+         *
+         * @since v1.4.3
+         */
+        public final void notifyItemMoved(int fromPosition, int toPosition){
+            if(mObserver != null){
+                mObserver.onItemMoved(fromPosition, toPosition);
+            }
+        }
+
+        /**
+         * 某个位置的子View是否被选中，在{@link #getView(int, ViewGroup)}和{@link #onBindView(int, View, Object)}中根据它
+         * 显示选中状态
+         * @param position 子View的位置
+         * @return 是否被选中
+         *
+         * @since v1.4.7
+         */
+        protected final boolean isItemSelected(int position){
+            return mObserver != null && mObserver.isItemSelected(position);
+        }
+
         /**
          * 将特定的子View设置为选中状态
          * @param position 子View的位置
          *
          * @since v1.3.2
+         * @deprecated 选中状态由MenuView统一管理，选中状态改变时会以{@link #PAYLOAD_SELECTION}调用
+         * {@link #onBindView(int, View, Object)}，通过{@link #isItemSelected(int)}拿到是否被选中
          */
+        @Deprecated
         public void makeViewSelected(int position){}
     }
 
+    /**
+     * 选中状态改变时重新绑定子View传入的payload
+     *
+     * @since v1.4.7
+     */
+    public static final Object PAYLOAD_SELECTION = new Object();
+
+    /**
+     * 选中状态改变的监听器
+     *
+     * @since v1.4.7
+     */
+    public interface OnItemSelectionChangedListener{
+        /**
+         * 某个位置的选中状态改变，单选时切换选中项会先回调取消选中的位置
+         * @param menuView menuView
+         * @param position 子View在Adapter中的位置
+         * @param selected 是否被选中
+         */
+        void onItemSelectionChanged(MenuView menuView, int position, boolean selected);
+    }
+
     /**
      * 动画监听器
      */
@@ -81,6 +342,47 @@ public class MenuView extends FrameLayout {
         void onAnimationEnd(Animator animation);
     }
 
+    /**
+     * 展开或者关闭最终稳定下来的监听器。动画过程中的反向、排队的请求都不会回调，只有所有动画都结束、状态不再变化时回调一次
+     *
+     * @since v1.4.5
+     */
+    public interface OnStatusSettledListener{
+        /**
+         * 状态稳定下来
+         * @param menuView menuView
+         * @param status 稳定之后的状态，{@link #OPEN}或者{@link #CLOSE}
+         */
+        void onStatusSettled(MenuView menuView, @StatusMode int status);
+    }
+
+    /**
+     * 动画帧数据的监听器，每次展开或者关闭动画结束时回调，可以用来上报线上的掉帧情况
+     *
+     * @since v1.4.6
+     */
+    public interface OnAnimationMetricsListener{
+        /**
+         * 一次动画结束
+         * @param menuView menuView
+         * @param metrics 这一次动画的帧数据，对象会被复用，只在回调过程中有效
+         */
+        void onAnimationMetrics(MenuView menuView, MenuAnimationMetrics metrics);
+    }
+
+    /**
+     * 所有子View都已经添加到menuView中的监听器
+     *
+     * @since v1.4.4
+     */
+    public interface OnMenuReadyListener{
+        /**
+         * 所有子View都已经添加，同步填充时在{@link #setAdapter(Adapter)}返回之前回调，异步填充时在最后一个子View添加之后回调
+         * @param menuView menuView
+         */
+        void onMenuReady(MenuView menuView);
+    }
+
     /**
      * 方向
      */
@@ -107,11 +409,83 @@ public class MenuView extends FrameLayout {
     public static final int CLOSE = 101;
     public static final int ANIMATING = 102;
 
+    /**
+     * 动画模式
+     */
+    @IntDef({
+            ANIMATION_MODE_SEQUENTIAL,
+            ANIMATION_MODE_STAGGER
+    })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface AnimationMode {}
+    /**
+     * 子View依次做动画，上一个结束之后下一个才开始，总时长是子View个数乘以单个子View的动画时长。和错开模式使用同一个动画驱动，
+     * 相当于错开时长等于单个子View的动画时长
+     */
+    public static final int ANIMATION_MODE_SEQUENTIAL = 0;
+    /**
+     * 一个动画驱动所有子View，相邻子View错开一段时间开始，动画之间可以重叠，总时长有上限，和子View个数无关
+     *
+     * @since v1.4.1
+     */
+    public static final int ANIMATION_MODE_STAGGER = 1;
+
+    /**
+     * 选择模式
+     */
+    @IntDef({
+            CHOICE_MODE_NONE,
+            CHOICE_MODE_SINGLE,
+            CHOICE_MODE_MULTIPLE
+    })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface ChoiceMode {}
+    /**
+     * 不可选
+     *
+     * @since v1.4.7
+     */
+    public static final int CHOICE_MODE_NONE = 0;
+    /**
+     * 单选，选中一个子View时取消之前选中的
+     *
+     * @since v1.4.7
+     */
+    public static final int CHOICE_MODE_SINGLE = 1;
+    /**
+     * 多选
+     *
+     * @since v1.4.7
+     */
+    public static final int CHOICE_MODE_MULTIPLE = 2;
+
     // 默认时长
     private static final int DURATION_DEFAULT = 40;
+    // 默认预取个数
+    private static final int PREFETCH_COUNT_DEFAULT = 2;
+    // 错开模式下默认的错开时长和最长总时长
+    private static final int STAGGER_OFFSET_DEFAULT = 20;
+    private static final int MAX_TOTAL_DURATION_DEFAULT = 300;
+    // 异步填充时每次主线程空闲最多用来创建子View的时长
+    private static final long POPULATE_BUDGET_NANOS = 4000000L;
+    // 后台线程空闲这么久之后退出，下次填充时重新创建
+    private static final long POPULATE_KEEP_ALIVE_SECONDS = 30;
+    // 后台创建子View使用MenuView自己的单线程线程池，保证按顺序创建，也不会和应用中其他AsyncTask互相排队
+    private static final Executor POPULATE_EXECUTOR = createPopulateExecutor();
     private static final Interpolator INTERPOLATOR_DEFAULT = new AccelerateDecelerateInterpolator();
-    // scrollView的子view
-    private LinearLayout mLinearLayout;
+    // 和xml中menu_view_item_animator的取值对应
+    private static final int ITEM_ANIMATOR_ROTATION = 0;
+    private static final int ITEM_ANIMATOR_TRANSLATION = 1;
+    private static final int ITEM_ANIMATOR_ALPHA = 2;
+    private static final int ITEM_ANIMATOR_SCALE = 3;
+    // 非虚拟化模式使用的容器，所有子View都在里面
+    private MenuLinearLayout mItemContainer;
+    // 虚拟化模式使用的容器
+    private MenuLayout mMenuLayout;
+    // 是否开启虚拟化模式
+    private boolean mIsVirtualized;
+    // 虚拟化模式下可见区域两侧预取的子View个数
+    private int mPrefetchCount;
     // 方向
     private @OrientationMode int mOrientation;
     // 是否反向动画，正常情况下，纵向展开从上向下，关闭从下向上；横向展开从左向右，关闭从右向左。如果这时反向将颠倒顺序
@@ -120,9 +494,41 @@ public class MenuView extends FrameLayout {
     private int mAnimationDuration;
     // 动画插值器
     private Interpolator mInterpolator;
-    // 开闭动画，各个view复用，减少内存消耗
-    private ObjectAnimator mOpenAnimator;
-    private ObjectAnimator mCloseAnimator;
+    // 动画模式
+    private @AnimationMode int mAnimationMode;
+    // 错开模式下相邻子View开始动画的间隔
+    private int mStaggerOffset;
+    // 错开模式下整个动画的最长时长
+    private int mMaxTotalDuration;
+    // 驱动所有子View的动画，开闭和两种动画模式复用，依次执行模式相当于错开时长等于单个子View的时长
+    private ValueAnimator mStaggerAnimator;
+    // 这一次动画的参数：是否是展开、请求的区间、第一个子View的下标、迭代方向、子View个数、单个子View的时长、实际的错开时长
+    private boolean mStaggerOpening;
+    private int mStaggerStart;
+    private int mStaggerEnd;
+    private int mStaggerFirstIndex;
+    private int mStaggerStep;
+    private int mStaggerCount;
+    private float mStaggerWindow;
+    private float mStaggerItemOffset;
+    // 已经到达终点的子View个数，之后的帧不再处理它们。正向时从第一个开始计数，反向时从最后一个开始计数
+    private int mStaggerFinishedCount;
+    // 动画是否被反向，反向之后时间线倒着走，每个子View从当前进度回到起点
+    private boolean mStaggerReversed;
+    // 是否开启预排动画
+    private boolean mScheduledAnimationEnabled;
+    // 这一次动画是否是预排的，预排时子View由各自的ViewPropertyAnimator驱动，时间线只负责状态和回调
+    private boolean mStaggerScheduled = false;
+    private OnStatusSettledListener mOnStatusSettledListener;
+    // 设置了帧数据监听器才统计
+    private OnAnimationMetricsListener mOnAnimationMetricsListener;
+    private MenuFrameTracker mFrameTracker;
+    // 动画过程中是否为正在动画的子View开启硬件层
+    private boolean mHardwareLayerEnabled;
+    // 子View展开和关闭的效果
+    private MenuItemAnimator mItemAnimator;
+    // 最近一次动画是否真正使用了硬件层
+    private boolean mHardwareLayerUsed = false;
     // 动画监听
     private AnimatorListener mOpenAnimatorListener;
     private AnimatorListener mCloseAnimatorListener;
@@ -134,6 +540,109 @@ public class MenuView extends FrameLayout {
     private boolean mHasSetPivot = false;
     // adapter
     private Adapter mAdapter;
+    // 当前显示的子View个数，和Adapter的数据通过notifyXXX()同步
+    private int mItemCount = 0;
+    // Adapter有稳定ID时记录每个位置的ID，数据整体改变时按照ID恢复状态
+    private final LongList mItemIds = new LongList();
+    // 是否异步填充子View
+    private boolean mAsyncPopulateEnabled;
+    // 是否正在异步填充
+    private boolean mPopulating = false;
+    // 异步填充因为离开窗口而暂停
+    private boolean mPopulatePaused = false;
+    // 异步填充的子View总数
+    private int mPopulateCount;
+    // 已经创建好但还没有添加的子View，按Adapter位置存放
+    private View[] mPopulatedViews;
+    // 可以在后台线程创建的位置
+    private final BitSet mBackgroundPositions = new BitSet();
+    // 每次开始、暂停或者取消填充都会加一，过期的后台结果直接丢弃
+    private int mPopulateGeneration = 0;
+    // 开闭状态已经确定的位置个数，重新开始填充时保留下来，后面的位置才按照当前整体状态添加
+    private int mPopulateKnownCount;
+    // 后台线程可能已经按照旧数据创建的位置，返回之后重新绑定
+    private final BitSet mStalePositions = new BitSet();
+    // 主线程空闲时下一个要检查的位置
+    private int mNextMainPosition;
+    private boolean mIdleHandlerAdded = false;
+    // 填充完成之前或者动画过程中收到的不能直接合并的展开或者关闭，完成之后再执行，只保留最后一次
+    private boolean mHasPendingRequest = false;
+    private boolean mPendingOpening;
+    private int mPendingStart;
+    private int mPendingEnd;
+    private OnMenuReadyListener mOnMenuReadyListener;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // 主线程空闲时分批创建子View
+    private final MessageQueue.IdleHandler mPopulateIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            if(!mPopulating){
+                mIdleHandlerAdded = false;
+                return false;
+            }
+            boolean more = populateOnMainThread();
+            attachPopulatedViews();
+            if(!more){
+                mIdleHandlerAdded = false;
+            }
+            return more;
+        }
+    };
+    // 每个位置上的子View是否处于关闭状态，虚拟化模式下重新绑定的子View根据它恢复状态
+    private final BitSet mClosedItems = new BitSet();
+    // 选择模式
+    private @ChoiceMode int mChoiceMode;
+    // 被选中的位置，按照Adapter中的位置记录
+    private final BitSet mSelectedItems = new BitSet();
+    private OnItemSelectionChangedListener mOnItemSelectionChangedListener;
+    // 恢复状态时还没有子View，等子View都添加之后再恢复
+    private SavedState mPendingSavedState;
+    // 延迟创建时恢复的滑动位置，创建之后再滑动
+    private SavedState mPendingScrollState;
+    // 容器和子View是否已经创建，延迟创建时第一次使用之前为false
+    private boolean mPrepared = false;
+    // 延迟创建时自己测量出的大小，不包括padding
+    private int mPlaceholderWidth;
+    private int mPlaceholderHeight;
+    // 虚拟化模式下连接容器和Adapter
+    private final MenuLayout.ItemSource mItemSource = new MenuLayout.ItemSource() {
+        @Override
+        public int getItemCount() {
+            return mItemCount;
+        }
+
+        @Override
+        public int getItemViewType(int layoutIndex) {
+            return mAdapter.getItemViewType(toAdapterPosition(layoutIndex));
+        }
+
+        @Override
+        public View getView(int layoutIndex, View convertView, ViewGroup parent) {
+            return mAdapter.getView(toAdapterPosition(layoutIndex), convertView, parent);
+        }
+
+        @Override
+        public View rebindView(View view, int layoutIndex, Object payload, ViewGroup parent) {
+            return rebindItem(view, layoutIndex, payload, parent);
+        }
+
+        @Override
+        public void onViewAttached(View view, int layoutIndex) {
+            applyPivot(view);
+            // 恢复开闭状态
+            applyItemProgress(view, mClosedItems.get(toAdapterPosition(layoutIndex)) ? 0 : 1);
+        }
+
+        @Override
+        public void onViewRecycled(View view) {
+            // 回收的子View不能继续持有硬件层，动画会在它重新绑定之后继续驱动它
+            restoreLayer(view);
+            // 预排的动画属于原来的位置，不能带到新的位置上
+            if(mStaggerScheduled && mStatus == ANIMATING){
+                view.animate().cancel();
+            }
+        }
+    };
 
     public MenuView(Context context) {
         this(context, null);
@@ -150,374 +659,2103 @@ public class MenuView extends FrameLayout {
         mOrientation = typedArray.getInt(R.styleable.MenuView_menu_view_orientation, VERTICAL);
         mIsReverse = typedArray.getBoolean(R.styleable.MenuView_menu_view_reverse, false);
         mAnimationDuration = typedArray.getInteger(R.styleable.MenuView_menu_view_animation_duration, DURATION_DEFAULT);
+        mIsVirtualized = typedArray.getBoolean(R.styleable.MenuView_menu_view_virtualized, false);
+        mPrefetchCount = typedArray.getInteger(R.styleable.MenuView_menu_view_prefetch_count, PREFETCH_COUNT_DEFAULT);
+        mAnimationMode = typedArray.getInt(R.styleable.MenuView_menu_view_animation_mode, ANIMATION_MODE_SEQUENTIAL);
+        mStaggerOffset = typedArray.getInteger(R.styleable.MenuView_menu_view_stagger_offset, STAGGER_OFFSET_DEFAULT);
+        mMaxTotalDuration = typedArray.getInteger(R.styleable.MenuView_menu_view_max_total_duration, MAX_TOTAL_DURATION_DEFAULT);
+        mHardwareLayerEnabled = typedArray.getBoolean(R.styleable.MenuView_menu_view_hardware_layer, true);
+        mAsyncPopulateEnabled = typedArray.getBoolean(R.styleable.MenuView_menu_view_async_populate, false);
+        mChoiceMode = typedArray.getInt(R.styleable.MenuView_menu_view_choice_mode, CHOICE_MODE_SINGLE);
+        int itemAnimator = typedArray.getInt(R.styleable.MenuView_menu_view_item_animator, ITEM_ANIMATOR_ROTATION);
+        mScheduledAnimationEnabled = typedArray.getBoolean(R.styleable.MenuView_menu_view_scheduled_animation, false);
+        boolean lazy = typedArray.getBoolean(R.styleable.MenuView_menu_view_lazy, false);
+        mPlaceholderWidth = typedArray.getDimensionPixelSize(R.styleable.MenuView_menu_view_placeholder_width, 0);
+        mPlaceholderHeight = typedArray.getDimensionPixelSize(R.styleable.MenuView_menu_view_placeholder_height, 0);
         typedArray.recycle();
-        mInterpolator = INTERPOLATOR_DEFAULT;
-        // 手动添加 ScrollView 进去
-        FrameLayout scrollView;
-        mLinearLayout = new LinearLayout(context);
-        if(mOrientation == VERTICAL){
-            scrollView = new ScrollView(context);
-            mLinearLayout.setOrientation(VERTICAL);
+        if(itemAnimator == ITEM_ANIMATOR_TRANSLATION){
+            mItemAnimator = MenuItemAnimator.translation();
+        }else if(itemAnimator == ITEM_ANIMATOR_ALPHA){
+            mItemAnimator = MenuItemAnimator.alpha();
+        }else if(itemAnimator == ITEM_ANIMATOR_SCALE){
+            mItemAnimator = MenuItemAnimator.scale();
         }else{
-            scrollView = new HorizontalScrollView(context);
-            mLinearLayout.setOrientation(HORIZONTAL);
+            mItemAnimator = MenuItemAnimator.rotation();
         }
-        scrollView.addView(mLinearLayout, LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT); // ScrollView 内部添加 LinearLayout
-        addView(scrollView, LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.MATCH_PARENT);
-    }
-
-    /**
-     * 设置适配器，子View同时通过适配器拿到的
-     * @param adapter 适配器
-     */
-    public void setAdapter(Adapter adapter) {
-        mAdapter = adapter;
-        int count = adapter.getCount();
-        if(mIsReverse){
-            for (int i = 0; i < count; i++) {
-                View view = adapter.getView(count - 1 - i, mLinearLayout);
-                mLinearLayout.addView(view);
-            }
-        }else{
-            for (int i = 0; i < count; i++) {
-                View view = adapter.getView(i, mLinearLayout);
-                mLinearLayout.addView(view);
-            }
+        mInterpolator = INTERPOLATOR_DEFAULT;
+        if(!lazy){
+            mPrepared = true;
+            buildContainer(context, false);
         }
     }
 
     /**
-     * 设置展开动画的监听器
-     * @param openAnimatorListener 动画监听器
+     * 立即创建容器并添加子View。延迟创建模式下容器和子View在第一次展开、第一次有展开的子View需要显示或者调用这个方法时
+     * 才创建，之前的开闭状态、选中状态和恢复的状态都会保留。已经创建时不处理
      *
-     * @since v1.3.1
+     * @since v1.6.4
      */
-    public void setOpenAnimatorListener(AnimatorListener openAnimatorListener) {
-        mOpenAnimatorListener = openAnimatorListener;
+    public void prepare(){
+        prepare(false);
     }
 
     /**
-     * 设置闭合动画的监听器
-     * @param closeAnimatorListener 动画监听器
-     *
-     * @since v1.3.1
+     * 创建容器并添加子View
+     * @param inLayout 是否在测量过程中创建，这时容器通过addViewInLayout()添加，不会在测量中途再请求一次布局。
+     *                 子View添加到新容器中时容器本身就在等待测量，也不会向上请求布局
      */
-    public void setCloseAnimatorListener(AnimatorListener closeAnimatorListener) {
-        mCloseAnimatorListener = closeAnimatorListener;
+    private void prepare(boolean inLayout){
+        if(mPrepared){
+            return;
+        }
+        mPrepared = true;
+        buildContainer(getContext(), inLayout);
+        bindItems();
+        if(mPendingScrollState != null){
+            SavedState savedState = mPendingScrollState;
+            mPendingScrollState = null;
+            restoreScroll(savedState);
+        }
     }
 
     /**
-     * 展开整个menuView，如果已经处于展开状态或者正在动画，将不处理。这个方法展开menuView中所有的子View
+     * 容器和子View是否已经创建
+     * @return 是否已经创建
      *
-     * @see #open(int, int)
+     * @since v1.6.4
      */
-    public void open(){
-        int startIndex = 0;
-        int endIndex = mLinearLayout.getChildCount() - 1;
-        open(startIndex, endIndex);
+    public boolean isPrepared() {
+        return mPrepared;
     }
 
     /**
-     * 展开局部的menuView，如果已经处于展开状态或者正在动画，将不处理。这个方法展开局部的子View，通过指定开始位置和结束
-     * 位置来指定展开区间
-     * @param startIndex 开始位置下标
-     * @param endIndex 结束位置下标
-     *
-     * @see #open()
+     * 设置延迟创建模式下还没有创建子View时，wrap_content测量出的大小，不包括padding。精确大小时不起作用
+     * @param placeholderWidth 宽度
+     * @param placeholderHeight 高度
      *
-     * @since v1.3.1
+     * @since v1.6.4
      */
-    public void open(int startIndex, int endIndex){
-        // 调整下标范围，保证不会越界
-        if(startIndex < 0){
-            startIndex = 0;
+    public void setPlaceholderSize(int placeholderWidth, int placeholderHeight) {
+        mPlaceholderWidth = Math.max(0, placeholderWidth);
+        mPlaceholderHeight = Math.max(0, placeholderHeight);
+        if(!mPrepared){
+            requestLayout();
         }
-        int count = mLinearLayout.getChildCount();
-        if(endIndex > (count - 1)){
-            endIndex = count - 1;
-        }
-        openInternal(startIndex, endIndex);
     }
 
-    /**
-     * 展开动画，如果已经处于展开状态或者正在动画，将不处理。内部使用，调用时需要保证不会发生数组越界
-     * @param startIndex 开始位置下标
-     * @param endIndex 结束位置下标
-     *
-     * @see #open()
-     * @see #open(int, int)
-     *
-     * @since v1.3.1
-     */
-    private void openInternal(final int startIndex, final int endIndex){
-        // 设置旋转中心
-        setPivot();
-        // 正在动画或者已经打开不处理
-        if(mStatus == ANIMATING || mStatus == OPEN){
-            if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "skip open animation");
-            return;
-        }
-        // 确定要做动画，更新状态
-        mStatus = ANIMATING;
-        // 根据方向不同，改变不同的属性
-        Property<View, Float> property;
-        if(mOrientation == VERTICAL){
-            property = View.ROTATION_Y;
-        }else{
-            property = View.ROTATION_X;
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        ViewMetrics.beginSection(TRACE_MEASURE);
+        try {
+            ViewMetrics.record(ViewMetrics.VIEW_MENU_VIEW, ViewMetrics.EVENT_MEASURE);
+            measureMenu(widthMeasureSpec, heightMeasureSpec);
+        } finally {
+            ViewMetrics.endSection();
         }
-        // 从第一个view开始执行动画，当这个view动画结束后将动画实例（mOpenAnimator）的target设置为下一个view，并开启这个动画，直到最后一个
-        // view执行完动画，将动画实例（mOpenAnimator）清空，以便下一次展开动画使用
-        final int count = mLinearLayout.getChildCount();
-        // 第一个执行动画的child
-        View firstAnimatedChild;
-        if(mIsReverse){
-            // 反向从最后一个开始
-            mCurrentIndex = count - 1 - startIndex;
-            firstAnimatedChild = mLinearLayout.getChildAt(mCurrentIndex);
-        }else{
-            // 正常从第一个开始
-            mCurrentIndex = startIndex;
-            firstAnimatedChild = mLinearLayout.getChildAt(mCurrentIndex);
-        }
-        mOpenAnimator = ObjectAnimator.ofFloat(firstAnimatedChild, property, 90, 0);
-        mOpenAnimator.setInterpolator(mInterpolator);
-        mOpenAnimator.setDuration(mAnimationDuration);
-        mOpenAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-                // 指向下一个子View
-                if(mIsReverse){
-                    // 反向要向上迭代
-                    mCurrentIndex --;
-                    if(mCurrentIndex > (count - 1 - endIndex - 1)){
-                        mOpenAnimator.setTarget(mLinearLayout.getChildAt(mCurrentIndex));
-                        mOpenAnimator.start();
-                    }else{
-                        if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "open animation finish");
-                        // 监听动画结束
-                        notifyOpenAnimationEnd();
-                        // 清空
-                        mOpenAnimator = null;
-                        mStatus = OPEN;
-                    }
-                }else{
-                    // 正常向下迭代
-                    mCurrentIndex ++;
-                    if(mCurrentIndex < (endIndex + 1)){
-                        mOpenAnimator.setTarget(mLinearLayout.getChildAt(mCurrentIndex));
-                        mOpenAnimator.start();
-                    }else{
-                        if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "open animation finish");
-                        // 监听动画结束
-                        notifyOpenAnimationEnd();
-                        // 清空
-                        mOpenAnimator = null;
-                        mStatus = OPEN;
-                    }
-                }
-            }
-        });
-        // 触发动画
-        if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "begin to do open animation");
-        // 监听动画开始
-        notifyOpenAnimationStart();
-        mOpenAnimator.start();
     }
 
-    private void notifyOpenAnimationStart(){
-        if(mOpenAnimatorListener != null){
-            mOpenAnimatorListener.onAnimationStart(mOpenAnimator);
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        ViewMetrics.beginSection(TRACE_LAYOUT);
+        try {
+            ViewMetrics.record(ViewMetrics.VIEW_MENU_VIEW, ViewMetrics.EVENT_LAYOUT);
+            super.onLayout(changed, left, top, right, bottom);
+            reapplyItemState();
+        } finally {
+            ViewMetrics.endSection();
         }
     }
 
-    private void notifyOpenAnimationEnd(){
-        if(mOpenAnimatorListener != null){
-            mOpenAnimatorListener.onAnimationEnd(mOpenAnimator);
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        ViewMetrics.beginSection(TRACE_DRAW);
+        try {
+            ViewMetrics.record(ViewMetrics.VIEW_MENU_VIEW, ViewMetrics.EVENT_DRAW);
+            super.dispatchDraw(canvas);
+        } finally {
+            ViewMetrics.endSection();
         }
     }
 
-    /**
-     * 关闭整个menuView，如果已经处于关闭状态或者正在动画，将不处理。这个方法将关闭整个menuView
-     *
-     * @see #close(int, int)
-     */
-    public void close(){
-        int startIndex = 0;
-        int endIndex = mLinearLayout.getChildCount() - 1;
-        close(startIndex, endIndex);
+    @Override
+    public void requestLayout() {
+        ViewMetrics.record(ViewMetrics.VIEW_MENU_VIEW, ViewMetrics.EVENT_REQUEST_LAYOUT);
+        super.requestLayout();
     }
 
-    /**
-     * 关闭局部menuView，如果已经处于关闭状态或者正在动画，将不处理。这个方法将关闭指定区域的子View，通过指定起始下标和
-     * 终止下标来指定区域
-     * @param startIndex 其实下标
+    private void measureMenu(int widthMeasureSpec, int heightMeasureSpec){
+        if(!mPrepared){
+            if(getVisibility() == VISIBLE && hasOpenItem()){
+                // 第一次有展开的子View要显示，接下来马上测量容器，不需要再请求布局
+                prepare(true);
+            }else{
+                // 还没有创建子View，按照占位大小测量，不需要任何子View
+                setMeasuredDimension(
+                        resolveSize(mPlaceholderWidth + getPaddingLeft() + getPaddingRight(), widthMeasureSpec),
+                        resolveSize(mPlaceholderHeight + getPaddingTop() + getPaddingBottom(), heightMeasureSpec));
+                return;
+            }
+        }
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    // 是否有处于展开状态的子View
+    private boolean hasOpenItem(){
+        return mAdapter != null && mClosedItems.nextClearBit(0) < mItemCount;
+    }
+
+    // 根据是否虚拟化创建容器
+    private void buildContainer(Context context, boolean inLayout){
+        View container;
+        if(mIsVirtualized){
+            mItemContainer = null;
+            mMenuLayout = new MenuLayout(context, mOrientation, mPrefetchCount);
+            container = mMenuLayout;
+        }else{
+            mMenuLayout = null;
+            // 子View直接放在可以滑动的容器中，不再使用ScrollView套LinearLayout
+            mItemContainer = new MenuLinearLayout(context, mOrientation);
+            container = mItemContainer;
+        }
+        LayoutParams params = new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
+        if(inLayout){
+            addViewInLayout(container, -1, params, true);
+        }else{
+            addView(container, params);
+        }
+    }
+
+    /**
+     * 设置适配器，子View同时通过适配器拿到的，之前的子View会被清空。开启异步填充时子View会陆续添加，全部添加之后回调
+     * {@link OnMenuReadyListener}
+     * @param adapter 适配器
+     *
+     * @see #setAsyncPopulateEnabled(boolean)
+     */
+    public void setAdapter(Adapter adapter) {
+        endRunningAnimation();
+        cancelPopulation();
+        if(mAdapter != null){
+            mAdapter.mObserver = null;
+        }
+        mAdapter = adapter;
+        mClosedItems.clear();
+        mSelectedItems.clear();
+        mItemCount = adapter == null ? 0 : adapter.getCount();
+        mCurrentIndex = 0;
+        if(adapter != null){
+            adapter.mObserver = this;
+        }
+        snapshotItemIds();
+        if(!mPrepared){
+            // 延迟创建模式下只记录数据，第一次使用时再创建子View
+            restorePendingState();
+            return;
+        }
+        bindItems();
+    }
+
+    // 把Adapter中的子View添加到容器中
+    private void bindItems(){
+        Adapter adapter = mAdapter;
+        if(mIsVirtualized){
+            // 虚拟化模式下只绑定可见区域内的子View，由容器在布局时向Adapter要，不需要异步填充
+            mMenuLayout.setItemSource(mItemSource);
+            restorePendingState();
+            notifyMenuReady();
+            return;
+        }
+        mItemContainer.removeAllViews();
+        mHasSetPivot = false;
+        if(adapter == null){
+            return;
+        }
+        if(mAsyncPopulateEnabled){
+            // 延迟创建之前关闭过的子View按照记录的状态添加
+            mPopulateKnownCount = mClosedItems.isEmpty() ? 0 : mItemCount;
+            startPopulation();
+            return;
+        }
+        int count = mItemCount;
+        for (int i = 0; i < count; i++) {
+            int position = toAdapterPosition(i);
+            View view = adapter.getView(position, mItemContainer);
+            // 延迟创建之前可能已经关闭了
+            if(mClosedItems.get(position)){
+                applyItemProgress(view, 0);
+            }
+            mItemContainer.addView(view);
+        }
+        restorePendingState();
+        notifyMenuReady();
+    }
+
+    /**
+     * 开启或者关闭异步填充，下一次{@link #setAdapter(Adapter)}时生效。开启之后{@link Adapter#canCreateViewInBackground(int)}
+     * 返回true的子View在后台线程创建，其余的在主线程空闲时分批创建，创建好的子View按顺序陆续添加，避免设置适配器时出现
+     * 很长的一帧。填充完成之前调用的展开或者关闭会等到填充完成之后再执行。虚拟化模式下子View本来就是按需绑定的，这个选项
+     * 不起作用
+     * @param asyncPopulateEnabled 是否开启
+     *
+     * @see #setOnMenuReadyListener(OnMenuReadyListener)
+     *
+     * @since v1.4.4
+     */
+    public void setAsyncPopulateEnabled(boolean asyncPopulateEnabled){
+        mAsyncPopulateEnabled = asyncPopulateEnabled;
+    }
+
+    /**
+     * 是否开启了异步填充
+     * @return 是否开启
+     *
+     * @since v1.4.4
+     */
+    public boolean isAsyncPopulateEnabled() {
+        return mAsyncPopulateEnabled;
+    }
+
+    /**
+     * 是否正在异步填充子View
+     * @return 是否正在填充
+     *
+     * @since v1.4.4
+     */
+    public boolean isPopulating() {
+        return mPopulating;
+    }
+
+    /**
+     * 设置所有子View都已经添加的监听器
+     * @param onMenuReadyListener 监听器
+     *
+     * @since v1.4.4
+     */
+    public void setOnMenuReadyListener(OnMenuReadyListener onMenuReadyListener) {
+        mOnMenuReadyListener = onMenuReadyListener;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if(mPopulating && mPopulatePaused){
+            mPopulatePaused = false;
+            schedulePopulation();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // 离开窗口之后暂停填充，重新添加到窗口时继续
+        if(mPopulating){
+            mPopulatePaused = true;
+            stopScheduledPopulation();
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState savedState = new SavedState(super.onSaveInstanceState());
+        if(mPendingSavedState != null){
+            // 还没有恢复就又要保存，原样保存
+            savedState.copyFrom(mPendingSavedState);
+            return savedState;
+        }
+        // 正在动画时保存动画的终点
+        if(mStatus == ANIMATING){
+            savedState.status = isAnimatingToOpen() ? OPEN : CLOSE;
+        }else{
+            savedState.status = mStatus;
+        }
+        savedState.itemCount = mPopulating ? mPopulateCount : mItemCount;
+        savedState.closedItems = BitSetUtils.toLongArray(mClosedItems);
+        savedState.selectedItems = BitSetUtils.toLongArray(mSelectedItems);
+        savedState.virtualized = mIsVirtualized;
+        if(!mPrepared){
+            // 还没有创建，保留之前恢复的滑动位置
+            if(mPendingScrollState != null){
+                savedState.firstIndex = mPendingScrollState.firstIndex;
+                savedState.scrollOffset = mPendingScrollState.scrollOffset;
+            }
+        }else if(mIsVirtualized){
+            savedState.firstIndex = mMenuLayout.getFirstIndex();
+            savedState.scrollOffset = mMenuLayout.getFirstOffset();
+        }else{
+            savedState.scrollOffset = mItemContainer.getScroll();
+        }
+        return savedState;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if(!(state instanceof SavedState)){
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        if(mAdapter == null || mPopulating){
+            // 设置Adapter或者填充完成之后再恢复
+            mPendingSavedState = savedState;
+            return;
+        }
+        restoreState(savedState);
+    }
+
+    private void restorePendingState(){
+        if(mPendingSavedState != null){
+            SavedState savedState = mPendingSavedState;
+            mPendingSavedState = null;
+            restoreState(savedState);
+        }
+    }
+
+    /**
+     * 直接恢复保存的状态，不做动画。子View个数和保存时不同时位置已经对不上，只恢复整体的开闭状态
+     * @param savedState 保存的状态
+     *
+     * @since v1.6.3
+     */
+    private void restoreState(SavedState savedState){
+        endRunningAnimation();
+        setPivot();
+        int count = getItemCount();
+        mStatus = savedState.status;
+        if(savedState.itemCount == count){
+            BitSetUtils.fromLongArray(savedState.closedItems, count, mClosedItems);
+            // 只重新绑定选中状态改变的子View，恢复时不回调选择监听器
+            BitSet changed = (BitSet) mSelectedItems.clone();
+            BitSetUtils.fromLongArray(savedState.selectedItems, count, mSelectedItems);
+            changed.xor(mSelectedItems);
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                bindSelection(i);
+            }
+        }else{
+            mClosedItems.clear();
+            if(mStatus == CLOSE){
+                mClosedItems.set(0, count);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            applyJumpedItem(i);
+        }
+        if(mPrepared){
+            restoreScroll(savedState);
+        }else{
+            mPendingScrollState = savedState;
+        }
+    }
+
+    private void restoreScroll(SavedState savedState){
+        // 虚拟化模式和非虚拟化模式记录的滑动位置含义不同
+        if(savedState.virtualized == mIsVirtualized){
+            if(mIsVirtualized){
+                mMenuLayout.scrollToItem(savedState.firstIndex, savedState.scrollOffset);
+            }else{
+                mItemContainer.restoreScroll(savedState.scrollOffset);
+            }
+        }
+    }
+
+    /**
+     * 开始异步填充，所有子View都以当前状态添加
+     *
+     * @since v1.4.4
+     */
+    private void startPopulation(){
+        mPopulating = true;
+        mPopulatePaused = false;
+        mPopulateCount = mItemCount;
+        mItemCount = 0;
+        mPopulatedViews = new View[mPopulateCount];
+        mBackgroundPositions.clear();
+        mStalePositions.clear();
+        for (int i = 0; i < mPopulateCount; i++) {
+            if(mAdapter.canCreateViewInBackground(i)){
+                mBackgroundPositions.set(i);
+            }
+        }
+        mNextMainPosition = 0;
+        if(mPopulateCount == 0){
+            finishPopulation();
+            return;
+        }
+        schedulePopulation();
+    }
+
+    // 数据在填充过程中改变了，已经添加的子View作废，重新开始填充。等待中的展开或者关闭、已经确定的开闭状态和选中状态都保留
+    private void restartPopulation(){
+        int knownCount = getPopulateKnownCount();
+        cancelPopulation();
+        mItemContainer.removeAllViews();
+        mItemCount = mAdapter.getCount();
+        mPopulateKnownCount = Math.min(knownCount, mItemCount);
+        mClosedItems.clear(mItemCount, Math.max(mItemCount, mClosedItems.length()));
+        mSelectedItems.clear(mItemCount, Math.max(mItemCount, mSelectedItems.length()));
+        mCurrentIndex = 0;
+        mHasSetPivot = false;
+        snapshotItemIds();
+        startPopulation();
+    }
+
+    private static Executor createPopulateExecutor(){
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, POPULATE_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        // 和AsyncTask一样使用后台优先级，不和主线程抢占CPU
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "MenuView-populate");
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // 把剩下的创建工作分别交给后台线程和主线程的空闲时间
+    private void schedulePopulation(){
+        int backgroundCount = 0;
+        for (int i = mBackgroundPositions.nextSetBit(mItemCount); i >= 0; i = mBackgroundPositions.nextSetBit(i + 1)) {
+            if(mPopulatedViews[i] == null){
+                backgroundCount++;
+            }
+        }
+        if(backgroundCount > 0){
+            final int[] positions = new int[backgroundCount];
+            int index = 0;
+            for (int i = mBackgroundPositions.nextSetBit(mItemCount); i >= 0; i = mBackgroundPositions.nextSetBit(i + 1)) {
+                if(mPopulatedViews[i] == null){
+                    positions[index++] = i;
+                }
+            }
+            final int generation = mPopulateGeneration;
+            final Adapter adapter = mAdapter;
+            final ViewGroup parent = mItemContainer;
+            POPULATE_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (final int position : positions) {
+                        final View view = adapter.getView(position, parent);
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                onViewPopulated(generation, position, view);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+        if(!mIdleHandlerAdded && mBackgroundPositions.nextClearBit(mNextMainPosition) < mPopulateCount){
+            mIdleHandlerAdded = true;
+            Looper.myQueue().addIdleHandler(mPopulateIdleHandler);
+        }
+    }
+
+    // 停止还在排队的创建工作，后台线程已经开始的结果会被丢弃
+    private void stopScheduledPopulation(){
+        mPopulateGeneration++;
+        if(mIdleHandlerAdded){
+            mIdleHandlerAdded = false;
+            Looper.myQueue().removeIdleHandler(mPopulateIdleHandler);
+        }
+    }
+
+    // 取消填充，还没添加的子View全部丢弃
+    private void cancelPopulation(){
+        if(!mPopulating){
+            return;
+        }
+        stopScheduledPopulation();
+        mPopulating = false;
+        mPopulatePaused = false;
+        mPopulatedViews = null;
+    }
+
+    // 开闭状态已经确定的位置个数，包括已经添加的子View
+    private int getPopulateKnownCount(){
+        return Math.max(mItemCount, mPopulateKnownCount);
+    }
+
+    // 填充过程中一段数据改变：已经添加的子View原地重新绑定，已经创建还没添加的也重新绑定，后台线程可能按照旧数据
+    // 创建的在返回时重新绑定，主线程还没创建的创建时就会读到新数据
+    private void rebindPopulating(int positionStart, int itemCount, Object payload){
+        int end = Math.min(positionStart + itemCount, mPopulateCount);
+        int attachedEnd = Math.min(end, mItemCount);
+        if(positionStart < attachedEnd){
+            rebindRange(positionStart, attachedEnd - positionStart, payload);
+        }
+        for (int position = Math.max(positionStart, mItemCount); position < end; position++) {
+            View view = mPopulatedViews[position];
+            if(view != null){
+                mPopulatedViews[position] = rebindPopulated(position, view, payload);
+            }else if(mBackgroundPositions.get(position)){
+                mStalePositions.set(position);
+            }
+        }
+    }
+
+    // 重新绑定一个还没添加的子View，不能原地绑定时重新创建
+    private View rebindPopulated(int position, View view, Object payload){
+        if(mAdapter.onBindView(position, view, payload)){
+            return view;
+        }
+        return mAdapter.getView(position, view, mItemContainer);
+    }
+
+    // 后台线程创建好一个子View
+    private void onViewPopulated(int generation, int position, View view){
+        if(generation != mPopulateGeneration || !mPopulating){
+            return;
+        }
+        if(mStalePositions.get(position)){
+            mStalePositions.clear(position);
+            view = rebindPopulated(position, view, null);
+        }
+        mPopulatedViews[position] = view;
+        attachPopulatedViews();
+    }
+
+    /**
+     * 在主线程创建子View，直到用完这一次空闲的时间预算
+     * @return 是否还有需要在主线程创建的子View
+     */
+    private boolean populateOnMainThread(){
+        long start = System.nanoTime();
+        while (true){
+            int position = mBackgroundPositions.nextClearBit(mNextMainPosition);
+            if(position >= mPopulateCount){
+                mNextMainPosition = position;
+                return false;
+            }
+            mPopulatedViews[position] = mAdapter.getView(position, mItemContainer);
+            mNextMainPosition = position + 1;
+            if(System.nanoTime() - start >= POPULATE_BUDGET_NANOS){
+                return mBackgroundPositions.nextClearBit(mNextMainPosition) < mPopulateCount;
+            }
+        }
+    }
+
+    // 按顺序添加已经创建好的子View，前面的没有创建好时后面的先等着
+    private void attachPopulatedViews(){
+        boolean attached = false;
+        while (mItemCount < mPopulateCount && mPopulatedViews[mItemCount] != null){
+            int position = mItemCount;
+            View view = mPopulatedViews[position];
+            mPopulatedViews[position] = null;
+            // 之前已经确定开闭状态的子View保持原来的状态，新的子View和当前整体状态保持一致
+            boolean closed;
+            if(position < mPopulateKnownCount){
+                closed = mClosedItems.get(position);
+            }else{
+                closed = mStatus == CLOSE;
+                mClosedItems.set(position, closed);
+            }
+            applyItemProgress(view, closed ? 0 : 1);
+            // 反向时Adapter中靠后的子View排在前面
+            if(mIsReverse){
+                mItemContainer.addView(view, 0);
+            }else{
+                mItemContainer.addView(view);
+            }
+            mItemCount++;
+            attached = true;
+        }
+        if(attached){
+            mHasSetPivot = false;
+        }
+        if(mItemCount == mPopulateCount){
+            finishPopulation();
+        }
+    }
+
+    // 填充完成，执行等待中的展开或者关闭
+    private void finishPopulation(){
+        stopScheduledPopulation();
+        mPopulating = false;
+        mPopulatedViews = null;
+        mPopulateKnownCount = 0;
+        restorePendingState();
+        runPendingRequest();
+        notifyMenuReady();
+    }
+
+    // 执行等待中的展开或者关闭
+    private void runPendingRequest(){
+        if(!mHasPendingRequest){
+            return;
+        }
+        mHasPendingRequest = false;
+        if(mPendingOpening){
+            open(mPendingStart, mPendingEnd);
+        }else{
+            close(mPendingStart, mPendingEnd);
+        }
+    }
+
+    /**
+     * 记录填充完成之后要执行的展开或者关闭
+     * @param opening 是否展开
+     * @param startIndex 开始位置下标
+     * @param endIndex 结束位置下标，{@link Integer#MAX_VALUE}表示到最后一个
+     */
+    private void deferRequest(boolean opening, int startIndex, int endIndex){
+        mHasPendingRequest = true;
+        mPendingOpening = opening;
+        mPendingStart = startIndex;
+        mPendingEnd = endIndex;
+    }
+
+    private void notifyMenuReady(){
+        if(mOnMenuReadyListener != null){
+            mOnMenuReadyListener.onMenuReady(this);
+        }
+    }
+
+    // 有稳定ID时记录每个位置的ID
+    private void snapshotItemIds(){
+        mItemIds.clear();
+        if(mAdapter != null && mAdapter.hasStableIds()){
+            for (int i = 0; i < mItemCount; i++) {
+                mItemIds.add(mAdapter.getItemId(i));
+            }
+        }
+    }
+
+    /**
+     * 开启或者关闭虚拟化模式。开启之后只有可见区域内以及两侧预取的子View会被绑定，滑出的子View会交给
+     * {@link Adapter#getView(int, View, ViewGroup)}复用，适合子View很多的情况。可见区域由滑动方向上的测量规格决定，
+     * 需要固定大小、match_parent或者有上限的wrap_content；放在ScrollView等不限制大小的父View中时最多只绑定一屏，
+     * 测量出的大小也不超过一屏。切换时重新创建容器并重新绑定子View，每个子View的开闭状态、选中状态以及当前位置都保留，
+     * 正在进行的动画直接跳到终点，滑动位置不保留
+     * @param virtualized 是否开启
+     *
+     * @since v1.4.0
+     */
+    public void setVirtualized(boolean virtualized){
+        if(mIsVirtualized == virtualized){
+            return;
+        }
+        endRunningAnimation();
+        if(mPopulating){
+            // 还没有添加的子View和当前整体状态保持一致，和填充时添加的状态相同
+            int knownCount = getPopulateKnownCount();
+            mItemCount = mPopulateCount;
+            cancelPopulation();
+            if(knownCount < mItemCount){
+                mClosedItems.set(knownCount, mItemCount, mStatus == CLOSE);
+            }
+        }
+        mIsVirtualized = virtualized;
+        // 重新创建容器，还没有创建时等第一次使用
+        removeAllViews();
+        mHasSetPivot = false;
+        if(!mPrepared){
+            return;
+        }
+        buildContainer(getContext(), false);
+        if(mAdapter != null){
+            bindItems();
+            // 等待填充完成的展开或者关闭，不再需要填充时直接执行
+            if(!mPopulating){
+                runPendingRequest();
+            }
+        }
+    }
+
+    /**
+     * 是否处于虚拟化模式
+     * @return 是否处于虚拟化模式
+     *
+     * @since v1.4.0
+     */
+    public boolean isVirtualized() {
+        return mIsVirtualized;
+    }
+
+    /**
+     * 设置虚拟化模式下可见区域两侧预取的子View个数
+     * @param prefetchCount 预取个数
+     *
+     * @since v1.4.0
+     */
+    public void setPrefetchCount(int prefetchCount){
+        mPrefetchCount = Math.max(0, prefetchCount);
+        if(mMenuLayout != null){
+            mMenuLayout.setPrefetchCount(mPrefetchCount);
+        }
+    }
+
+    /**
+     * 设置展开动画的监听器
+     * @param openAnimatorListener 动画监听器
+     *
+     * @since v1.3.1
+     */
+    public void setOpenAnimatorListener(AnimatorListener openAnimatorListener) {
+        mOpenAnimatorListener = openAnimatorListener;
+    }
+
+    /**
+     * 设置闭合动画的监听器
+     * @param closeAnimatorListener 动画监听器
+     *
+     * @since v1.3.1
+     */
+    public void setCloseAnimatorListener(AnimatorListener closeAnimatorListener) {
+        mCloseAnimatorListener = closeAnimatorListener;
+    }
+
+    /**
+     * 展开整个menuView，如果已经处于展开状态将不处理。正在关闭时会从当前进度反向展开，这个方法展开menuView中所有的子View
+     *
+     * @see #open(int, int)
+     */
+    public void open(){
+        if(mPopulating){
+            // 填充完成之后展开所有的子View，包括之后才添加的
+            deferRequest(true, 0, Integer.MAX_VALUE);
+            return;
+        }
+        int startIndex = 0;
+        int endIndex = getItemCount() - 1;
+        open(startIndex, endIndex);
+    }
+
+    /**
+     * 展开局部的menuView，如果已经处于展开状态将不处理。正在动画时，区间相同就合并或者原地反向，区间不同就等当前动画结束之后
+     * 再执行。这个方法展开局部的子View，通过指定开始位置和结束位置来指定展开区间
+     * @param startIndex 开始位置下标
+     * @param endIndex 结束位置下标
+     *
+     * @see #open()
+     *
+     * @since v1.3.1
+     */
+    public void open(int startIndex, int endIndex){
+        // 第一次展开时创建子View，开启异步填充时会等到填充完成之后再展开
+        prepare();
+        if(mPopulating){
+            deferRequest(true, startIndex, endIndex);
+            return;
+        }
+        // 调整下标范围，保证不会越界
+        if(startIndex < 0){
+            startIndex = 0;
+        }
+        int count = getItemCount();
+        if(endIndex > (count - 1)){
+            endIndex = count - 1;
+        }
+        if(startIndex > endIndex){
+            return;
+        }
+        openInternal(startIndex, endIndex);
+    }
+
+    /**
+     * 展开动画，如果已经处于展开状态将不处理，正在动画时交给状态机处理。内部使用，调用时需要保证不会发生数组越界
+     * @param startIndex 开始位置下标
+     * @param endIndex 结束位置下标
+     *
+     * @see #open()
+     * @see #open(int, int)
+     *
+     * @since v1.3.1
+     */
+    private void openInternal(final int startIndex, final int endIndex){
+        // 设置旋转中心
+        setPivot();
+        // 正在动画时不丢弃请求，合并、反向或者排队
+        if(mStatus == ANIMATING){
+            requestDuringAnimation(true, startIndex, endIndex);
+            return;
+        }
+        // 已经打开不处理
+        if(mStatus == OPEN){
+            if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "skip open animation");
+            return;
+        }
+        // 确定要做动画，更新状态
+        mStatus = ANIMATING;
+        mHardwareLayerUsed = false;
+        // 先记录目标状态，虚拟化模式下之后才绑定的子View直接使用这个状态
+        mClosedItems.clear(startIndex, endIndex + 1);
+        final int count = getItemCount();
+        // 第一个和最后一个执行动画的下标以及迭代方向
+        final int firstIndex;
+        final int lastIndex;
+        final int step;
+        if(mIsReverse){
+            // 反向从最后一个开始，向上迭代
+            firstIndex = count - 1 - startIndex;
+            lastIndex = count - 1 - endIndex;
+            step = -1;
+        }else{
+            // 正常从第一个开始，向下迭代
+            firstIndex = startIndex;
+            lastIndex = endIndex;
+            step = 1;
+        }
+        mCurrentIndex = firstIndex;
+        if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "begin to do open animation");
+        startStaggerAnimation(true, startIndex, endIndex, firstIndex, lastIndex, step);
+    }
+
+    private void notifyOpenAnimationStart(Animator animator){
+        if(mOpenAnimatorListener != null){
+            mOpenAnimatorListener.onAnimationStart(animator);
+        }
+    }
+
+    private void notifyOpenAnimationEnd(Animator animator){
+        if(mOpenAnimatorListener != null){
+            mOpenAnimatorListener.onAnimationEnd(animator);
+        }
+    }
+
+    /**
+     * 关闭整个menuView，如果已经处于关闭状态将不处理。正在展开时会从当前进度反向关闭，这个方法将关闭整个menuView
+     *
+     * @see #close(int, int)
+     */
+    public void close(){
+        if(mPopulating){
+            deferRequest(false, 0, Integer.MAX_VALUE);
+            return;
+        }
+        int startIndex = 0;
+        int endIndex = getItemCount() - 1;
+        close(startIndex, endIndex);
+    }
+
+    /**
+     * 关闭局部menuView，如果已经处于关闭状态将不处理。正在动画时，区间相同就合并或者原地反向，区间不同就等当前动画结束之后
+     * 再执行。这个方法将关闭指定区域的子View，通过指定起始下标和终止下标来指定区域
+     * @param startIndex 其实下标
      * @param endIndex 终止下标
      *
-     * @see #close()
+     * @see #close()
+     *
+     * @since v1.3.1
+     */
+    public void close(int startIndex, int endIndex){
+        if(mPopulating){
+            deferRequest(false, startIndex, endIndex);
+            return;
+        }
+        if(!mPrepared){
+            // 还没有创建子View，没有可以做动画的对象，直接记录关闭状态
+            jump(false, startIndex, endIndex);
+            return;
+        }
+        // 调整下标范围，保证不会越界
+        if(startIndex < 0){
+            startIndex = 0;
+        }
+        int count = getItemCount();
+        if(endIndex > (count - 1)){
+            endIndex = count - 1;
+        }
+        if(startIndex > endIndex){
+            return;
+        }
+        closeInternal(startIndex, endIndex);
+    }
+
+    /**
+     * 关闭动画，如果已经处于关闭状态将不处理，正在动画时交给状态机处理。内部使用，调用时需要保证不会发生数组越界
+     * @param startIndex 开始位置下标
+     * @param endIndex 结束位置下标
+     *
+     * @see #close()
+     * @see #close(int, int)
+     *
+     * @since v1.3.1
+     */
+    private void closeInternal(final int startIndex, final int endIndex){
+        // 设置旋转中心
+        setPivot();
+        // 正在动画时不丢弃请求，合并、反向或者排队
+        if(mStatus == ANIMATING){
+            requestDuringAnimation(false, startIndex, endIndex);
+            return;
+        }
+        // 已经关闭不处理
+        if(mStatus == CLOSE){
+            if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "skip close animation");
+            return;
+        }
+        // 确定要做动画，更新状态
+        mStatus = ANIMATING;
+        mHardwareLayerUsed = false;
+        // 先记录目标状态，虚拟化模式下之后才绑定的子View直接使用这个状态
+        mClosedItems.set(startIndex, endIndex + 1);
+        final int count = getItemCount();
+        // 第一个和最后一个执行动画的下标以及迭代方向
+        final int firstIndex;
+        final int lastIndex;
+        final int step;
+        if(mIsReverse){
+            // 反向从第一个开始关闭，向下迭代
+            firstIndex = count - 1 - endIndex;
+            lastIndex = count - 1 - startIndex;
+            step = 1;
+        }else{
+            // 正常从最后一个开始关闭，向上迭代
+            firstIndex = endIndex;
+            lastIndex = startIndex;
+            step = -1;
+        }
+        mCurrentIndex = firstIndex;
+        if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "begin to do close animation");
+        startStaggerAnimation(false, startIndex, endIndex, firstIndex, lastIndex, step);
+    }
+
+    /**
+     * 动画过程中收到展开或者关闭的请求。区间和正在进行的动画相同时，方向相同直接合并，方向相反就让时间线倒着走，每个子View
+     * 从当前进度原地返回，不会从头开始；区间不同时排队，等当前动画结束之后执行，只保留最后一次请求
+     * @param opening 是否是展开
+     * @param startIndex 开始位置下标
+     * @param endIndex 结束位置下标
+     *
+     * @since v1.4.5
+     */
+    private void requestDuringAnimation(boolean opening, int startIndex, int endIndex){
+        if(startIndex != mStaggerStart || endIndex != mStaggerEnd){
+            if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "queue request until animation finish");
+            deferRequest(opening, startIndex, endIndex);
+            return;
+        }
+        // 之前排队的请求被这一次覆盖
+        mHasPendingRequest = false;
+        if(opening == isAnimatingToOpen()){
+            return;
+        }
+        if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "reverse running animation");
+        // 时间线当前的位置，反向之前记录
+        float elapsed = mStaggerAnimator.getAnimatedFraction() * mStaggerAnimator.getDuration();
+        mStaggerReversed = !mStaggerReversed;
+        mStaggerFinishedCount = 0;
+        // 目标状态改变，之前的方向算作结束，新的方向开始
+        if(opening){
+            mClosedItems.clear(mStaggerStart, mStaggerEnd + 1);
+            notifyCloseAnimationEnd(mStaggerAnimator);
+            notifyOpenAnimationStart(mStaggerAnimator);
+        }else{
+            mClosedItems.set(mStaggerStart, mStaggerEnd + 1);
+            notifyOpenAnimationEnd(mStaggerAnimator);
+            notifyCloseAnimationStart(mStaggerAnimator);
+        }
+        mStaggerAnimator.reverse();
+        if(mStaggerScheduled){
+            scheduleItems(elapsed);
+        }
+        if(mFrameTracker != null){
+            mFrameTracker.onReversed(opening);
+        }
+    }
+
+    // 正在进行的动画最终是否是展开
+    private boolean isAnimatingToOpen(){
+        return mStaggerOpening != mStaggerReversed;
+    }
+
+    /**
+     * 在展开和关闭之间切换，正在动画时从当前进度反向，适合直接绑定到一个开关按钮上，连续点击不会丢失或者卡住
+     *
+     * @since v1.4.5
+     */
+    public void toggle(){
+        if(mPopulating){
+            // 填充完成之前只记录最后的目标
+            boolean opening = mHasPendingRequest ? !mPendingOpening : mStatus != OPEN;
+            deferRequest(opening, 0, Integer.MAX_VALUE);
+            return;
+        }
+        if(mStatus == ANIMATING){
+            if(isAnimatingToOpen()){
+                close(mStaggerStart, mStaggerEnd);
+            }else{
+                open(mStaggerStart, mStaggerEnd);
+            }
+        }else if(mStatus == OPEN){
+            close();
+        }else{
+            open();
+        }
+    }
+
+    /**
+     * 直接展开整个menuView，不做动画，子View在下一帧就处于展开状态。正在进行的动画会直接结束
+     *
+     * @see #jumpToOpen(int, int)
+     *
+     * @since v1.6.3
+     */
+    public void jumpToOpen(){
+        jumpToOpen(0, getItemCount() - 1);
+    }
+
+    /**
+     * 直接展开局部的menuView，不做动画，适合恢复界面时直接到达目标状态。正在进行的动画会直接结束
+     * @param startIndex 开始位置下标
+     * @param endIndex 结束位置下标
+     *
+     * @see #open(int, int)
+     *
+     * @since v1.6.3
+     */
+    public void jumpToOpen(int startIndex, int endIndex){
+        prepare();
+        jump(true, startIndex, endIndex);
+    }
+
+    /**
+     * 直接关闭整个menuView，不做动画，子View在下一帧就处于关闭状态。正在进行的动画会直接结束
+     *
+     * @see #jumpToClosed(int, int)
+     *
+     * @since v1.6.3
+     */
+    public void jumpToClosed(){
+        jumpToClosed(0, getItemCount() - 1);
+    }
+
+    /**
+     * 直接关闭局部的menuView，不做动画，适合恢复界面时直接到达目标状态。正在进行的动画会直接结束
+     * @param startIndex 开始位置下标
+     * @param endIndex 结束位置下标
+     *
+     * @see #close(int, int)
+     *
+     * @since v1.6.3
+     */
+    public void jumpToClosed(int startIndex, int endIndex){
+        jump(false, startIndex, endIndex);
+    }
+
+    /**
+     * 直接设置区间内子View的最终状态，不创建任何动画。异步填充时之后添加的子View和整体状态保持一致
+     * @param opening 是否是展开
+     * @param startIndex 开始位置下标
+     * @param endIndex 结束位置下标
+     *
+     * @since v1.6.3
+     */
+    private void jump(boolean opening, int startIndex, int endIndex){
+        endRunningAnimation();
+        // 调整下标范围，保证不会越界
+        if(startIndex < 0){
+            startIndex = 0;
+        }
+        int count = getItemCount();
+        if(endIndex > (count - 1)){
+            endIndex = count - 1;
+        }
+        mStatus = opening ? OPEN : CLOSE;
+        if(startIndex <= endIndex){
+            setPivot();
+            mClosedItems.set(startIndex, endIndex + 1, !opening);
+            for (int i = startIndex; i <= endIndex; i++) {
+                applyJumpedItem(i);
+            }
+        }
+        notifyStatusSettled();
+    }
+
+    // 按照记录的开闭状态直接设置一个位置上的子View，虚拟化模式下没有绑定的子View在绑定时设置
+    private void applyJumpedItem(int position){
+        // 布局下标和Adapter中位置的转换是对称的
+        View child = getItemViewAt(toAdapterPosition(position));
+        if(child == null){
+            return;
+        }
+        restoreLayer(child);
+        applyItemProgress(child, mClosedItems.get(position) ? 0 : 1);
+    }
+
+    /**
+     * 设置状态稳定下来的监听器
+     * @param onStatusSettledListener 监听器
+     *
+     * @since v1.4.5
+     */
+    public void setOnStatusSettledListener(OnStatusSettledListener onStatusSettledListener) {
+        mOnStatusSettledListener = onStatusSettledListener;
+    }
+
+    /**
+     * 设置动画帧数据的监听器，设置之后才会统计每次动画的帧数据，统计通过Choreographer的帧回调完成，每一帧不分配内存。
+     * 设置为null关闭统计
+     * @param onAnimationMetricsListener 监听器
+     *
+     * @since v1.4.6
+     */
+    public void setOnAnimationMetricsListener(OnAnimationMetricsListener onAnimationMetricsListener) {
+        mOnAnimationMetricsListener = onAnimationMetricsListener;
+        if(onAnimationMetricsListener == null && mFrameTracker != null){
+            mFrameTracker.stop();
+        }
+    }
+
+    // 当前正在动画的子View在Adapter中的位置，统计帧数据时使用
+    int getAnimatingPosition(){
+        return toAdapterPosition(mCurrentIndex);
+    }
+
+    private void notifyStatusSettled(){
+        if(mOnStatusSettledListener != null){
+            mOnStatusSettledListener.onStatusSettled(this, mStatus);
+        }
+    }
+
+    /**
+     * 开始动画的子View提升为硬件层，动画过程中只需要改变层的变换属性，不需要每一帧重新录制子View的绘制内容。
+     * 原来的层类型记录在子View的tag中，以便结束时恢复
+     * @param child 开始动画的子View
+     *
+     * @since v1.4.2
+     */
+    private void promoteLayer(View child){
+        // 没有硬件加速时会退化成软件层，反而更慢
+        if(!mHardwareLayerEnabled || !mItemAnimator.wantsHardwareLayer() || !child.isHardwareAccelerated()
+                || child.getTag(R.id.menu_view_original_layer_type) != null){
+            return;
+        }
+        int layerType = child.getLayerType();
+        child.setTag(R.id.menu_view_original_layer_type, layerType);
+        if(layerType != LAYER_TYPE_HARDWARE){
+            child.setLayerType(LAYER_TYPE_HARDWARE, null);
+        }
+        mHardwareLayerUsed = true;
+    }
+
+    /**
+     * 结束或者取消动画的子View恢复原来的层类型，不做动画的子View不持有层，避免占用过多显存
+     * @param child 结束动画的子View
+     *
+     * @since v1.4.2
+     */
+    private void restoreLayer(View child){
+        if(child == null){
+            return;
+        }
+        Object layerType = child.getTag(R.id.menu_view_original_layer_type);
+        if(layerType == null){
+            return;
+        }
+        child.setTag(R.id.menu_view_original_layer_type, null);
+        if(child.getLayerType() != (Integer) layerType){
+            child.setLayerType((Integer) layerType, null);
+        }
+    }
+
+    // 设置子View的进度，0表示关闭，1表示展开
+    private void applyItemProgress(View item, float progress){
+        mItemAnimator.apply(item, progress, mOrientation);
+    }
+
+    private void notifyCloseAnimationStart(Animator animator){
+        if (mCloseAnimatorListener != null) {
+            mCloseAnimatorListener.onAnimationStart(animator);
+        }
+    }
+
+    private void notifyCloseAnimationEnd(Animator animator){
+        if (mCloseAnimatorListener != null) {
+            mCloseAnimatorListener.onAnimationEnd(animator);
+        }
+    }
+
+    /**
+     * 展开和关闭的动画，一个ValueAnimator驱动区间内所有的子View，第k个子View在k * 错开时长之后开始，每一帧只遍历一次子View。
+     * 依次执行模式下错开时长等于单个子View的时长；错开模式下如果按照设置的错开时长总时长会超过上限，就压缩错开时长，保证总时长
+     * 和子View个数无关。每个子View的进度都只由时间线决定，所以反向时让时间线倒着走就可以从当前进度原地返回。预排模式下
+     * 开始时就把每个子View的动画连同延迟交给它自己的ViewPropertyAnimator，之后子View不再依赖时间线每一帧的回调
+     * @param opening 是否是展开
+     * @param startIndex 请求的开始位置下标
+     * @param endIndex 请求的结束位置下标
+     * @param firstIndex 第一个执行动画的下标
+     * @param lastIndex 最后一个执行动画的下标
+     * @param step 迭代方向
+     *
+     * @since v1.4.1
+     */
+    private void startStaggerAnimation(boolean opening, int startIndex, int endIndex, int firstIndex, int lastIndex, int step){
+        int count = (lastIndex - firstIndex) * step + 1;
+        int window;
+        float offset;
+        if(mAnimationMode == ANIMATION_MODE_STAGGER){
+            window = Math.max(1, Math.min(mAnimationDuration, mMaxTotalDuration));
+            offset = mStaggerOffset;
+            if(count > 1 && window + (count - 1) * offset > mMaxTotalDuration){
+                offset = (float) (mMaxTotalDuration - window) / (count - 1);
+            }
+        }else{
+            // 上一个子View结束时下一个开始
+            window = Math.max(1, mAnimationDuration);
+            offset = window;
+        }
+        mStaggerOpening = opening;
+        mStaggerStart = startIndex;
+        mStaggerEnd = endIndex;
+        mStaggerFirstIndex = firstIndex;
+        mStaggerStep = step;
+        mStaggerCount = count;
+        mStaggerWindow = window;
+        mStaggerItemOffset = offset;
+        mStaggerFinishedCount = 0;
+        mStaggerReversed = false;
+        mStaggerScheduled = mScheduledAnimationEnabled && mItemAnimator.isSchedulable();
+        if(mStaggerAnimator == null){
+            mStaggerAnimator = ValueAnimator.ofFloat(0, 1);
+            // 时间线性推进，插值器作用在每个子View自己的进度上
+            mStaggerAnimator.setInterpolator(new LinearInterpolator());
+            mStaggerAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    float elapsed = animation.getAnimatedFraction() * animation.getDuration();
+                    if(mStaggerScheduled){
+                        ViewMetrics.record(ViewMetrics.VIEW_MENU_VIEW, ViewMetrics.EVENT_ANIMATION_FRAME);
+                        updateScheduledIndex(elapsed);
+                    }else{
+                        applyStaggerFrame(elapsed);
+                    }
+                }
+            });
+            mStaggerAnimator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    super.onAnimationEnd(animation);
+                    finishStaggerAnimation();
+                }
+            });
+        }
+        mStaggerAnimator.setDuration(Math.round(window + (count - 1) * offset));
+        if(opening){
+            notifyOpenAnimationStart(mStaggerAnimator);
+        }else{
+            notifyCloseAnimationStart(mStaggerAnimator);
+        }
+        mStaggerAnimator.start();
+        if(mStaggerScheduled){
+            scheduleItems(0);
+        }
+        if(mOnAnimationMetricsListener != null){
+            if(mFrameTracker == null){
+                mFrameTracker = new MenuFrameTracker(this);
+            }
+            mFrameTracker.start(opening, count);
+        }
+    }
+
+    // 一帧动画，elapsed是时间线上的位置，反向时逐渐减小
+    private void applyStaggerFrame(float elapsed){
+        ViewMetrics.beginSection(TRACE_ANIMATION_FRAME);
+        try {
+            ViewMetrics.record(ViewMetrics.VIEW_MENU_VIEW, ViewMetrics.EVENT_ANIMATION_FRAME);
+            applyStaggerItems(elapsed);
+        } finally {
+            ViewMetrics.endSection();
+        }
+    }
+
+    private void applyStaggerItems(float elapsed){
+        // 正向时跳过前面已经结束的子View，反向时跳过后面已经回到起点的子View
+        int k;
+        int end;
+        int dk;
+        if(mStaggerReversed){
+            k = mStaggerCount - 1 - mStaggerFinishedCount;
+            end = -1;
+            dk = -1;
+        }else{
+            k = mStaggerFinishedCount;
+            end = mStaggerCount;
+            dk = 1;
+        }
+        for (; k != end; k += dk) {
+            int index = mStaggerFirstIndex + k * mStaggerStep;
+            float fraction = (elapsed - k * mStaggerItemOffset) / mStaggerWindow;
+            View child = getItemViewAt(index);
+            boolean settled;
+            if(fraction >= 1){
+                fraction = 1;
+                settled = !mStaggerReversed;
+            }else if(fraction <= 0){
+                fraction = 0;
+                settled = mStaggerReversed;
+            }else{
+                settled = false;
+                mCurrentIndex = index;
+                if(child != null){
+                    promoteLayer(child);
+                }
+            }
+            if(settled){
+                // 连续到达终点的子View之后不再处理
+                int next = mStaggerReversed ? mStaggerCount - 1 - mStaggerFinishedCount : mStaggerFinishedCount;
+                if(k == next){
+                    mStaggerFinishedCount ++;
+                }
+            }
+            if(child == null){
+                continue;
+            }
+            if(fraction == 1 || fraction == 0){
+                restoreLayer(child);
+            }
+            float value = mInterpolator.getInterpolation(fraction);
+            applyItemProgress(child, mStaggerOpening ? value : 1 - value);
+        }
+    }
+
+    /**
+     * 预排模式下按照时间线从elapsed开始的走向，为区间内每个子View安排剩下的动画：还没开始的子View延迟到时间线经过它时
+     * 开始，正在进行的子View从当前值立即继续，已经到达终点的子View不再处理。开始和反向时调用，子View中途反向时的曲线
+     * 是近似的，终点和结束时间和时间线一致
+     * @param elapsed 时间线当前的位置
+     *
+     * @since v1.6.2
+     */
+    private void scheduleItems(float elapsed){
+        ViewMetrics.beginSection(TRACE_SCHEDULE_ANIMATION);
+        try {
+            scheduleRemainingItems(elapsed);
+        } finally {
+            ViewMetrics.endSection();
+        }
+    }
+
+    private void scheduleRemainingItems(float elapsed){
+        boolean forward = !mStaggerReversed;
+        float target = mStaggerOpening == forward ? 1 : 0;
+        for (int k = 0; k < mStaggerCount; k++) {
+            View child = getItemViewAt(mStaggerFirstIndex + k * mStaggerStep);
+            if(child == null){
+                continue;
+            }
+            ViewPropertyAnimator animator = child.animate();
+            // 之前安排的动画作废，子View停在当前值
+            animator.cancel();
+            float itemStart = k * mStaggerItemOffset;
+            float itemEnd = itemStart + mStaggerWindow;
+            float begin;
+            float end;
+            if(forward){
+                begin = Math.max(elapsed, itemStart);
+                end = itemEnd;
+            }else{
+                begin = Math.min(elapsed, itemEnd);
+                end = itemStart;
+            }
+            float duration = forward ? end - begin : begin - end;
+            if(duration <= 0){
+                continue;
+            }
+            animator.setStartDelay(Math.round(Math.abs(begin - elapsed)))
+                    .setDuration(Math.max(1, Math.round(duration)))
+                    .setInterpolator(mInterpolator);
+            // ViewPropertyAnimator结束或者取消时自己恢复层类型
+            if(mHardwareLayerEnabled && mItemAnimator.wantsHardwareLayer() && child.isHardwareAccelerated()){
+                animator.withLayer();
+                mHardwareLayerUsed = true;
+            }
+            mItemAnimator.schedule(child, animator, target, mOrientation);
+            animator.start();
+        }
+    }
+
+    // 预排模式下只根据时间线估算当前动画到的子View，不处理子View
+    private void updateScheduledIndex(float elapsed){
+        int k = mStaggerItemOffset > 0 ? (int) (elapsed / mStaggerItemOffset) : mStaggerCount - 1;
+        k = Math.max(0, Math.min(k, mStaggerCount - 1));
+        mCurrentIndex = mStaggerFirstIndex + k * mStaggerStep;
+    }
+
+    private void finishStaggerAnimation(){
+        if(mStaggerScheduled){
+            // 时间线和子View的动画可能差一帧结束，取消之后统一设置到终点
+            for (int k = 0; k < mStaggerCount; k++) {
+                View child = getItemViewAt(mStaggerFirstIndex + k * mStaggerStep);
+                if(child != null){
+                    child.animate().cancel();
+                }
+            }
+            mStaggerScheduled = false;
+        }
+        // 保证所有子View都到达终点，反向时终点是时间线的起点
+        mStaggerFinishedCount = 0;
+        applyStaggerFrame(mStaggerReversed ? 0 : mStaggerAnimator.getDuration());
+        mCurrentIndex = mStaggerReversed ? mStaggerFirstIndex : mStaggerFirstIndex + (mStaggerCount - 1) * mStaggerStep;
+        if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "animation finish");
+        if(mFrameTracker != null){
+            MenuAnimationMetrics metrics = mFrameTracker.stop();
+            if(metrics != null && mOnAnimationMetricsListener != null){
+                mOnAnimationMetricsListener.onAnimationMetrics(this, metrics);
+            }
+        }
+        if(isAnimatingToOpen()){
+            mStatus = OPEN;
+            notifyOpenAnimationEnd(mStaggerAnimator);
+        }else{
+            mStatus = CLOSE;
+            notifyCloseAnimationEnd(mStaggerAnimator);
+        }
+        // 执行动画过程中排队的请求，监听器里也可能已经开始了新的动画
+        if(mStatus != ANIMATING){
+            runPendingRequest();
+        }
+        if(mStatus != ANIMATING){
+            notifyStatusSettled();
+        }
+    }
+
+    /**
+     * 为动画设置插值器
+     * @param interpolator 插值器
+     */
+    public void setAnimationInterpolator(Interpolator interpolator) {
+        mInterpolator = interpolator;
+    }
+
+    /**
+     * 为动画设置时长，这个时长是单个View的动画时长，不是总时长
+     * @param animationDuration 单个View的动画时长
+     */
+    public void setAnimationDuration(int animationDuration) {
+        mAnimationDuration = animationDuration;
+    }
+
+    /**
+     * 设置动画过程中是否为正在动画的子View开启硬件层，默认开启。子View布局复杂时开启可以避免每一帧重新录制绘制内容，
+     * 子View很简单时关闭可以节省创建层的开销
+     * @param hardwareLayerEnabled 是否开启
+     *
+     * @since v1.4.2
+     */
+    public void setHardwareLayerEnabled(boolean hardwareLayerEnabled) {
+        mHardwareLayerEnabled = hardwareLayerEnabled;
+    }
+
+    /**
+     * 设置是否开启预排动画，下一次展开或者关闭时生效。开启之后动画开始时就把每个子View的动画连同各自的延迟一次性交给
+     * 子View的ViewPropertyAnimator，不再由一个动画在每一帧遍历子View，适合展开之后主线程马上要做大量工作的场景。
+     * 子View的效果不支持预排（{@link MenuItemAnimator#isSchedulable()}返回false）时仍然逐帧驱动
+     * @param scheduledAnimationEnabled 是否开启
+     *
+     * @since v1.6.2
+     */
+    public void setScheduledAnimationEnabled(boolean scheduledAnimationEnabled) {
+        mScheduledAnimationEnabled = scheduledAnimationEnabled;
+    }
+
+    /**
+     * @return 是否开启了预排动画
+     *
+     * @since v1.6.2
+     */
+    public boolean isScheduledAnimationEnabled() {
+        return mScheduledAnimationEnabled;
+    }
+
+    /**
+     * 设置子View展开和关闭的效果，默认是{@link MenuItemAnimator#rotation()}。正在进行的动画会直接结束，已经显示的子View
+     * 清除原来的效果之后按照当前的开闭状态应用新的效果。低端设备上可以选择平移等更便宜的效果
+     * @param itemAnimator 效果，不能为null
+     *
+     * @see MenuItemAnimator#translation()
+     * @see MenuItemAnimator#alpha()
+     * @see MenuItemAnimator#scale()
      *
-     * @since v1.3.1
+     * @since v1.6.1
      */
-    public void close(int startIndex, int endIndex){
-        // 调整下标范围，保证不会越界
-        if(startIndex < 0){
-            startIndex = 0;
+    public void setItemAnimator(MenuItemAnimator itemAnimator) {
+        if(itemAnimator == null){
+            throw new IllegalArgumentException("itemAnimator can not be null");
         }
-        int count = mLinearLayout.getChildCount();
-        if(endIndex > (count - 1)){
-            endIndex = count - 1;
+        if(itemAnimator == mItemAnimator){
+            return;
+        }
+        endRunningAnimation();
+        MenuItemAnimator previous = mItemAnimator;
+        mItemAnimator = itemAnimator;
+        // 还没有布局的子View在下一次布局之后重新设置
+        mHasSetPivot = false;
+        int itemCount = getItemCount();
+        for (int i = 0; i < itemCount; i++) {
+            View child = getItemViewAt(i);
+            // 虚拟化模式下没有绑定的子View在绑定时会应用新的效果
+            if(child == null){
+                continue;
+            }
+            previous.clear(child);
+            restoreLayer(child);
+            itemAnimator.onPrepare(child, mOrientation);
+            applyItemProgress(child, mClosedItems.get(toAdapterPosition(i)) ? 0 : 1);
         }
-        closeInternal(startIndex, endIndex);
     }
 
     /**
-     * 关闭动画，内部使用，调用时需要保证不会发生数组越界
-     * @param startIndex 开始位置下标
-     * @param endIndex 结束位置下标
+     * 拿到子View展开和关闭的效果
+     * @return 效果
      *
-     * @see #close()
-     * @see #close(int, int)
+     * @since v1.6.1
+     */
+    public MenuItemAnimator getItemAnimator() {
+        return mItemAnimator;
+    }
+
+    /**
+     * 最近一次（或者正在进行的）展开、关闭动画是否真正使用了硬件层。只有开启了硬件层选项并且子View处于硬件加速时才会
+     * 使用，可以用来对比开启和关闭时的帧耗时
+     * @return 是否使用了硬件层
      *
-     * @since v1.3.1
+     * @since v1.4.2
      */
-    private void closeInternal(final int startIndex, final int endIndex){
-        // 设置旋转中心
-        setPivot();
-        // 正在动画或者已经关闭不处理
-        if(mStatus == ANIMATING || mStatus == CLOSE){
-            if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "skip close animation");
+    public boolean isHardwareLayerUsed() {
+        return mHardwareLayerUsed;
+    }
+
+    /**
+     * 设置动画模式，下一次展开或者关闭时生效
+     * @param animationMode {@link #ANIMATION_MODE_SEQUENTIAL}、{@link #ANIMATION_MODE_STAGGER}
+     *
+     * @since v1.4.1
+     */
+    public void setAnimationMode(@AnimationMode int animationMode) {
+        mAnimationMode = animationMode;
+    }
+
+    /**
+     * 设置错开模式下相邻子View开始动画的间隔，小于单个View的动画时长时动画会重叠
+     * @param staggerOffset 间隔
+     *
+     * @since v1.4.1
+     */
+    public void setStaggerOffset(int staggerOffset) {
+        mStaggerOffset = Math.max(0, staggerOffset);
+    }
+
+    /**
+     * 设置错开模式下整个动画的最长时长，子View很多时会压缩错开间隔，保证不超过这个时长
+     * @param maxTotalDuration 最长时长
+     *
+     * @since v1.4.1
+     */
+    public void setMaxTotalDuration(int maxTotalDuration) {
+        mMaxTotalDuration = Math.max(1, maxTotalDuration);
+    }
+
+    /**
+     * 使某指定的子View处于选中状态，位置是显示的顺序，反向时会转换成Adapter中的位置
+     * @param position 子View位置
+     *
+     * @see #setItemSelected(int, boolean)
+     *
+     * @since v1.3.2
+     */
+    @SuppressWarnings("deprecation")
+    public void makeViewSelected(int position){
+        if (mAdapter != null) {
+            if(position < 0 || position >= getItemCount()){
+                return;
+            }
+            int adapterPosition = toAdapterPosition(position);
+            setItemSelected(adapterPosition, true);
+            // 兼容之前自己处理选中的Adapter
+            mAdapter.makeViewSelected(adapterPosition);
+        }
+    }
+
+    /**
+     * 设置选择模式，改变模式会清空当前的选中状态
+     * @param choiceMode {@link #CHOICE_MODE_NONE}、{@link #CHOICE_MODE_SINGLE}、{@link #CHOICE_MODE_MULTIPLE}
+     *
+     * @since v1.4.7
+     */
+    public void setChoiceMode(@ChoiceMode int choiceMode){
+        if(mChoiceMode == choiceMode){
             return;
         }
-        // 确定要做动画，更新状态
-        mStatus = ANIMATING;
-        // 根据方向不同，改变不同的属性
-        Property<View, Float> property;
-        if(mOrientation == VERTICAL){
-            property = View.ROTATION_Y;
-        }else{
-            property = View.ROTATION_X;
+        clearSelection();
+        mChoiceMode = choiceMode;
+    }
+
+    /**
+     * @return 选择模式
+     *
+     * @since v1.4.7
+     */
+    public @ChoiceMode int getChoiceMode() {
+        return mChoiceMode;
+    }
+
+    /**
+     * 设置某个位置的选中状态，只有选中状态真正改变的子View会以{@link #PAYLOAD_SELECTION}重新绑定。单选模式下选中一个位置会
+     * 取消之前选中的位置，不可选模式下不处理
+     * @param position 子View在Adapter中的位置
+     * @param selected 是否选中
+     *
+     * @since v1.4.7
+     */
+    public void setItemSelected(int position, boolean selected){
+        if(mChoiceMode == CHOICE_MODE_NONE || position < 0 || position >= getItemCount()
+                || mSelectedItems.get(position) == selected){
+            return;
         }
-        final int count = mLinearLayout.getChildCount();
-        // 第一个执行动画的child
-        View firstAnimatedChild;
-        if(mIsReverse){
-            // 反向从第一个开始关闭
-            mCurrentIndex = count - 1- endIndex;
-            firstAnimatedChild = mLinearLayout.getChildAt(mCurrentIndex);
-        }else{
-            // 正常从最后一个开始关闭
-            mCurrentIndex = endIndex;
-            firstAnimatedChild = mLinearLayout.getChildAt(mCurrentIndex);
-        }
-        mCloseAnimator = ObjectAnimator.ofFloat(firstAnimatedChild, property, 0, 90);
-        mCloseAnimator.setInterpolator(mInterpolator);
-        mCloseAnimator.setDuration(mAnimationDuration);
-        mCloseAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-                // 迭代到下一个view
-                if(mIsReverse){
-                    // 反向向下迭代
-                    mCurrentIndex ++;
-                    if(mCurrentIndex < (count - 1 - startIndex + 1)){
-                        mCloseAnimator.setTarget(mLinearLayout.getChildAt(mCurrentIndex));
-                        mCloseAnimator.start();
-                    }else{
-                        if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "close animation finish");
-                        // 监听动画结束
-                        notifyCloseAnimationEnd();
-                        // 清空
-                        mCloseAnimator = null;
-                        mStatus = CLOSE;
-                    }
-                }else{
-                    // 正常向上迭代
-                    mCurrentIndex --;
-                    if(mCurrentIndex == (startIndex - 1)){
-                        if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "close animation finish");
-                        // 监听动画结束
-                        notifyCloseAnimationEnd();
-                        mCloseAnimator = null;
-                        mStatus = CLOSE;
-                    }else{
-                        mCloseAnimator.setTarget(mLinearLayout.getChildAt(mCurrentIndex));
-                        mCloseAnimator.start();
-                    }
-                }
+        if(selected && mChoiceMode == CHOICE_MODE_SINGLE){
+            int lastSelected = mSelectedItems.nextSetBit(0);
+            if(lastSelected >= 0){
+                updateSelection(lastSelected, false);
             }
-        });
-        if(Consts.MENU_VIEW_DEBUG) Log.d(TAG, "begin to do close animation");
-        // 监听动画开始
-        notifyCloseAnimationStart();
-        mCloseAnimator.start();
+        }
+        updateSelection(position, selected);
     }
 
-    private void notifyCloseAnimationStart(){
-        if (mCloseAnimatorListener != null) {
-            mCloseAnimatorListener.onAnimationStart(mCloseAnimator);
-        }
+    /**
+     * 某个位置是否被选中
+     * @param position 子View在Adapter中的位置
+     * @return 是否被选中
+     *
+     * @since v1.4.7
+     */
+    public boolean isItemSelected(int position){
+        return mSelectedItems.get(position);
     }
 
-    private void notifyCloseAnimationEnd(){
-        if (mCloseAnimatorListener != null) {
-            mCloseAnimatorListener.onAnimationEnd(mCloseAnimator);
+    /**
+     * 单选模式下被选中的位置
+     * @return 被选中的位置，没有时返回-1，多选时返回第一个被选中的位置
+     *
+     * @since v1.4.7
+     */
+    public int getSelectedPosition(){
+        return mSelectedItems.nextSetBit(0);
+    }
+
+    /**
+     * @return 被选中的个数
+     *
+     * @since v1.4.7
+     */
+    public int getSelectedCount(){
+        return mSelectedItems.cardinality();
+    }
+
+    /**
+     * 所有被选中的位置
+     * @return 从小到大排列的位置
+     *
+     * @since v1.4.7
+     */
+    public int[] getSelectedPositions(){
+        int[] positions = new int[mSelectedItems.cardinality()];
+        int index = 0;
+        for (int i = mSelectedItems.nextSetBit(0); i >= 0; i = mSelectedItems.nextSetBit(i + 1)) {
+            positions[index++] = i;
         }
+        return positions;
     }
 
     /**
-     * 为动画设置插值器
-     * @param interpolator 插值器
+     * 清空所有选中状态
+     *
+     * @since v1.4.7
      */
-    public void setAnimationInterpolator(Interpolator interpolator) {
-        mInterpolator = interpolator;
+    public void clearSelection(){
+        for (int i = mSelectedItems.nextSetBit(0); i >= 0; i = mSelectedItems.nextSetBit(i + 1)) {
+            updateSelection(i, false);
+        }
     }
 
     /**
-     * 为动画设置时长，这个时长是单个View的动画时长，不是总时长
-     * @param animationDuration 单个View的动画时长
+     * 设置选中状态改变的监听器
+     * @param onItemSelectionChangedListener 监听器
+     *
+     * @since v1.4.7
      */
-    public void setAnimationDuration(int animationDuration) {
-        mAnimationDuration = animationDuration;
+    public void setOnItemSelectionChangedListener(OnItemSelectionChangedListener onItemSelectionChangedListener) {
+        mOnItemSelectionChangedListener = onItemSelectionChangedListener;
+    }
+
+    // 改变一个位置的选中状态并且只重新绑定这一个子View
+    private void updateSelection(int position, boolean selected){
+        mSelectedItems.set(position, selected);
+        // 异步填充时还没有添加的子View在创建时就会读到最新的选中状态
+        if(position < mItemCount){
+            bindSelection(position);
+        }
+        if(mOnItemSelectionChangedListener != null){
+            mOnItemSelectionChangedListener.onItemSelectionChanged(this, position, selected);
+        }
     }
 
     /**
-     * 使某指定的子View处于选中状态
-     * @param position 子View位置
+     * 通知已经存在的子View选中状态改变。只原地调用{@link Adapter#onBindView(int, View, Object)}，没有重写它的Adapter
+     * 自己处理选中状态，不会像其他数据改变一样通过getView()创建新的子View替换原来的
+     * @param position 子View在Adapter中的位置
      *
-     * @since v1.3.2
+     * @since v1.4.7
      */
-    public void makeViewSelected(int position){
-        if (mAdapter != null) {
-            if(mIsReverse){
-                mAdapter.makeViewSelected(mLinearLayout.getChildCount() - 1 - position);
-            }else{
-                mAdapter.makeViewSelected(position);
-            }
+    private void bindSelection(int position){
+        View view = getItemViewAt(toLayoutStart(position, 1, mItemCount));
+        if(view != null){
+            mAdapter.onBindView(position, view, PAYLOAD_SELECTION);
         }
     }
 
-    // 设置子view的旋转中心点
+    // 设置子view的变换中心点等和尺寸有关的属性
     private void setPivot(){
+        // 虚拟化模式下子View在绑定时设置，还没有创建时没有子View
+        if(mIsVirtualized || !mPrepared){
+            return;
+        }
         // 设置过就不再设置了
         if(!mHasSetPivot){
-            int count = mLinearLayout.getChildCount();
+            int count = mItemContainer.getChildCount();
             for (int i = 0; i < count; i++) {
-                View item = mLinearLayout.getChildAt(i);
-                if(mOrientation == VERTICAL){
-                    item.setPivotX(0);
-                    item.setPivotY(0);
-                }else{
-                    item.setPivotX(0);
-                    item.setPivotY(item.getHeight());
-                }
+                applyPivot(mItemContainer.getChildAt(i));
             }
             // 标记为已经设置
             mHasSetPivot = true;
         }
     }
 
+    private void applyPivot(View item){
+        mItemAnimator.onPrepare(item, mOrientation);
+    }
+
+    /**
+     * 布局之后按照开闭状态重新设置所有已经添加的子View。恢复状态、跳转、插入和异步填充时子View可能还没有布局，
+     * 变换中心和平移距离这类和尺寸、位置有关的属性是按照0计算的，需要在布局之后重新计算。动画过程中由动画负责
+     */
+    private void reapplyItemState(){
+        if(!mPrepared || mStatus == ANIMATING){
+            return;
+        }
+        ViewGroup container = mIsVirtualized ? mMenuLayout : mItemContainer;
+        int firstIndex = mIsVirtualized ? mMenuLayout.getFirstIndex() : 0;
+        int childCount = container.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View child = container.getChildAt(i);
+            applyPivot(child);
+            applyItemProgress(child, mClosedItems.get(toAdapterPosition(firstIndex + i)) ? 0 : 1);
+        }
+    }
+
+    // 子View的总数
+    private int getItemCount(){
+        return mItemCount;
+    }
+
+    /**
+     * 拿到布局下标上的子View
+     * @param layoutIndex 布局下标，反向时和Adapter中的位置相反
+     * @return 子View，虚拟化模式下没有绑定或者还没有创建时返回null
+     */
+    private View getItemViewAt(int layoutIndex){
+        if(!mPrepared){
+            return null;
+        }
+        if(mIsVirtualized){
+            return mMenuLayout.getViewAt(layoutIndex);
+        }
+        return mItemContainer.getChildAt(layoutIndex);
+    }
+
+    // 布局下标转换成Adapter中的位置
+    private int toAdapterPosition(int layoutIndex){
+        return toAdapterPosition(mIsReverse, layoutIndex, getItemCount());
+    }
+
+    // 反向时Adapter中靠后的子View排在前面，布局下标和位置互相对称
+    static int toAdapterPosition(boolean reverse, int layoutIndex, int count){
+        return reverse ? count - 1 - layoutIndex : layoutIndex;
+    }
+
+    /**
+     * 立即结束正在进行的动画，所有子View直接到达终点，结构性的数据改变之前调用，保证下标不会错乱
+     *
+     * @since v1.4.3
+     */
+    private void endRunningAnimation(){
+        // 排队的请求作废
+        mHasPendingRequest = false;
+        if(mStaggerAnimator != null && mStaggerAnimator.isStarted()){
+            mStaggerAnimator.end();
+        }
+    }
+
+    /**
+     * 重新绑定已经存在的子View，Adapter不能原地更新时通过getView()拿到新的子View
+     * @param view 原来的子View
+     * @param layoutIndex 布局下标
+     * @param payload 局部更新的信息
+     * @param parent 父容器
+     * @return 重新绑定之后的子View
+     *
+     * @since v1.4.3
+     */
+    private View rebindItem(View view, int layoutIndex, Object payload, ViewGroup parent){
+        int position = toAdapterPosition(layoutIndex);
+        if(mAdapter.onBindView(position, view, payload)){
+            return view;
+        }
+        View newView = mAdapter.getView(position, view, parent);
+        if(newView != view){
+            restoreLayer(view);
+            // 新的子View继承开闭状态
+            applyItemProgress(newView, mClosedItems.get(position) ? 0 : 1);
+            mHasSetPivot = false;
+        }
+        return newView;
+    }
+
+    // 数据整体改变
+    private void onDataSetChanged(){
+        if(mPopulating){
+            restartPopulation();
+            return;
+        }
+        endRunningAnimation();
+        int oldCount = mItemCount;
+        int newCount = mAdapter.getCount();
+        boolean defaultClosed = mStatus == CLOSE;
+        BitSet closedItems = new BitSet(newCount);
+        BitSet selectedItems = new BitSet(newCount);
+        LongSparseArray<View> oldViews = null;
+        if(mAdapter.hasStableIds() && mItemIds.size() == oldCount){
+            // 有稳定ID，按照ID找回原来的开闭状态和子View
+            LongSparseArray<Integer> oldPositions = new LongSparseArray<>(oldCount);
+            for (int i = 0; i < oldCount; i++) {
+                oldPositions.put(mItemIds.get(i), i);
+            }
+            if(!mIsVirtualized && mPrepared){
+                oldViews = new LongSparseArray<>(oldCount);
+                for (int i = 0; i < oldCount; i++) {
+                    oldViews.put(mItemIds.get(toAdapterPosition(i)), mItemContainer.getChildAt(i));
+                }
+            }
+            mItemIds.clear();
+            for (int i = 0; i < newCount; i++) {
+                long id = mAdapter.getItemId(i);
+                mItemIds.add(id);
+                Integer oldPosition = oldPositions.get(id);
+                closedItems.set(i, oldPosition != null ? mClosedItems.get(oldPosition) : defaultClosed);
+                selectedItems.set(i, oldPosition != null && mSelectedItems.get(oldPosition));
+            }
+        }else{
+            // 按照位置保留开闭状态
+            for (int i = 0; i < newCount; i++) {
+                closedItems.set(i, i < oldCount ? mClosedItems.get(i) : defaultClosed);
+                selectedItems.set(i, i < oldCount && mSelectedItems.get(i));
+            }
+            mItemIds.clear();
+            if(mAdapter.hasStableIds()){
+                for (int i = 0; i < newCount; i++) {
+                    mItemIds.add(mAdapter.getItemId(i));
+                }
+            }
+        }
+        mClosedItems.clear();
+        mClosedItems.or(closedItems);
+        mSelectedItems.clear();
+        mSelectedItems.or(selectedItems);
+        mItemCount = newCount;
+        mCurrentIndex = Math.max(0, Math.min(mCurrentIndex, newCount - 1));
+        if(!mPrepared){
+            return;
+        }
+        if(mIsVirtualized){
+            mMenuLayout.notifyDataSetChanged();
+            return;
+        }
+        mItemContainer.removeAllViews();
+        mHasSetPivot = false;
+        for (int i = 0; i < newCount; i++) {
+            int position = toAdapterPosition(i);
+            View oldView = oldViews == null ? null : oldViews.get(mItemIds.get(position));
+            View view;
+            if(oldView != null && mAdapter.onBindView(position, oldView, null)){
+                view = oldView;
+            }else{
+                view = mAdapter.getView(position, oldView, mItemContainer);
+            }
+            applyItemProgress(view, mClosedItems.get(position) ? 0 : 1);
+            mItemContainer.addView(view);
+        }
+    }
+
+    // 一段数据改变，只重新绑定这些子View
+    private void onItemRangeChanged(int positionStart, int itemCount, Object payload){
+        if(mPopulating){
+            rebindPopulating(positionStart, itemCount, payload);
+            return;
+        }
+        rebindRange(positionStart, itemCount, payload);
+    }
+
+    // 重新绑定一段已经添加的子View
+    private void rebindRange(int positionStart, int itemCount, Object payload){
+        // 还没有创建的子View在创建时就会读到最新的数据
+        if(!mPrepared){
+            return;
+        }
+        int layoutStart = toLayoutStart(positionStart, itemCount, mItemCount);
+        if(mIsVirtualized){
+            mMenuLayout.onItemRangeChanged(layoutStart, itemCount, payload);
+            return;
+        }
+        for (int i = layoutStart; i < layoutStart + itemCount; i++) {
+            View view = mItemContainer.getChildAt(i);
+            View newView = rebindItem(view, i, payload, mItemContainer);
+            if(newView != view){
+                mItemContainer.removeViewAt(i);
+                mItemContainer.addView(newView, i);
+            }
+        }
+    }
+
+    // 插入了一段数据，只添加新的子View
+    private void onItemRangeInserted(int positionStart, int itemCount){
+        if(mPopulating){
+            int knownCount = getPopulateKnownCount();
+            if(positionStart < knownCount){
+                BitSetUtils.insert(mClosedItems, positionStart, itemCount, mStatus == CLOSE);
+                mPopulateKnownCount = knownCount + itemCount;
+            }
+            BitSetUtils.insert(mSelectedItems, positionStart, itemCount, false);
+            restartPopulation();
+            return;
+        }
+        endRunningAnimation();
+        mItemCount += itemCount;
+        // 新插入的子View和当前整体状态保持一致
+        BitSetUtils.insert(mClosedItems, positionStart, itemCount, mStatus == CLOSE);
+        BitSetUtils.insert(mSelectedItems, positionStart, itemCount, false);
+        if(mAdapter.hasStableIds()){
+            for (int i = 0; i < itemCount; i++) {
+                mItemIds.add(positionStart + i, mAdapter.getItemId(positionStart + i));
+            }
+        }
+        int layoutStart = toLayoutStart(positionStart, itemCount, mItemCount);
+        if(mCurrentIndex >= layoutStart){
+            mCurrentIndex += itemCount;
+        }
+        if(!mPrepared){
+            return;
+        }
+        if(mIsVirtualized){
+            mMenuLayout.onItemRangeInserted(layoutStart, itemCount);
+            return;
+        }
+        for (int i = layoutStart; i < layoutStart + itemCount; i++) {
+            int position = toAdapterPosition(i);
+            View view = mAdapter.getView(position, mItemContainer);
+            applyItemProgress(view, mClosedItems.get(position) ? 0 : 1);
+            mItemContainer.addView(view, i);
+        }
+        mHasSetPivot = false;
+    }
+
+    // 删除了一段数据，只移除这些子View
+    private void onItemRangeRemoved(int positionStart, int itemCount){
+        if(mPopulating){
+            int knownCount = getPopulateKnownCount();
+            BitSetUtils.remove(mClosedItems, positionStart, itemCount);
+            BitSetUtils.remove(mSelectedItems, positionStart, itemCount);
+            mPopulateKnownCount = knownCount - Math.max(0, Math.min(knownCount, positionStart + itemCount) - positionStart);
+            restartPopulation();
+            return;
+        }
+        endRunningAnimation();
+        int layoutStart = toLayoutStart(positionStart, itemCount, mItemCount);
+        mItemCount -= itemCount;
+        BitSetUtils.remove(mClosedItems, positionStart, itemCount);
+        BitSetUtils.remove(mSelectedItems, positionStart, itemCount);
+        if(mAdapter.hasStableIds() && mItemIds.size() >= positionStart + itemCount){
+            mItemIds.removeRange(positionStart, itemCount);
+        }
+        if(mCurrentIndex >= layoutStart + itemCount){
+            mCurrentIndex -= itemCount;
+        }else if(mCurrentIndex >= layoutStart){
+            mCurrentIndex = Math.max(0, Math.min(layoutStart, mItemCount - 1));
+        }
+        if(!mPrepared){
+            return;
+        }
+        if(mIsVirtualized){
+            mMenuLayout.onItemRangeRemoved(layoutStart, itemCount);
+            return;
+        }
+        for (int i = layoutStart; i < layoutStart + itemCount; i++) {
+            restoreLayer(mItemContainer.getChildAt(i));
+        }
+        mItemContainer.removeViews(layoutStart, itemCount);
+    }
+
+    // 移动了一个数据，子View直接跟着移动，不重新绑定
+    private void onItemMoved(int fromPosition, int toPosition){
+        if(fromPosition == toPosition){
+            return;
+        }
+        if(mPopulating){
+            // 两个位置的开闭状态都已经确定时才能跟着移动
+            int knownCount = getPopulateKnownCount();
+            if(fromPosition < knownCount && toPosition < knownCount){
+                BitSetUtils.move(mClosedItems, fromPosition, toPosition);
+            }
+            BitSetUtils.move(mSelectedItems, fromPosition, toPosition);
+            restartPopulation();
+            return;
+        }
+        endRunningAnimation();
+        BitSetUtils.move(mClosedItems, fromPosition, toPosition);
+        BitSetUtils.move(mSelectedItems, fromPosition, toPosition);
+        if(mAdapter.hasStableIds() && mItemIds.size() == mItemCount){
+            mItemIds.move(fromPosition, toPosition);
+        }
+        int fromLayoutIndex = toLayoutStart(fromPosition, 1, mItemCount);
+        int toLayoutIndex = toLayoutStart(toPosition, 1, mItemCount);
+        if(mCurrentIndex == fromLayoutIndex){
+            mCurrentIndex = toLayoutIndex;
+        }
+        if(!mPrepared){
+            return;
+        }
+        if(mIsVirtualized){
+            mMenuLayout.onItemMoved(fromLayoutIndex, toLayoutIndex);
+            return;
+        }
+        View view = mItemContainer.getChildAt(fromLayoutIndex);
+        mItemContainer.removeViewAt(fromLayoutIndex);
+        mItemContainer.addView(view, toLayoutIndex);
+    }
+
+    /**
+     * 把Adapter中一段连续的位置转换成布局下标的起点，反向时这段位置在布局中的顺序是相反的
+     * @param positionStart 起始位置
+     * @param itemCount 个数
+     * @param count 这段位置有效时的子View总数
+     * @return 布局下标的起点
+     */
+    private int toLayoutStart(int positionStart, int itemCount, int count){
+        return toLayoutStart(mIsReverse, positionStart, itemCount, count);
+    }
+
+    // Adapter中一段连续位置在布局中的起始下标，反向时这一段在布局中也是连续的，但是从末尾算起
+    static int toLayoutStart(boolean reverse, int positionStart, int itemCount, int count){
+        return reverse ? count - positionStart - itemCount : positionStart;
+    }
+
     /**
      * 获取当前状态
      * @return {@link #OPEN}、{@link #CLOSE}、{@link #ANIMATING}
@@ -525,4 +2763,70 @@ public class MenuView extends FrameLayout {
     public @StatusMode int getStatus() {
         return mStatus;
     }
+
+    /**
+     * 保存开闭状态、选中状态和滑动位置，按照Adapter中的位置记录
+     *
+     * @since v1.6.3
+     */
+    static class SavedState extends BaseSavedState {
+        int status;
+        int itemCount;
+        long[] closedItems;
+        long[] selectedItems;
+        boolean virtualized;
+        // 虚拟化模式下是第一个子View的布局下标
+        int firstIndex;
+        // 虚拟化模式下是第一个子View的偏移，否则是滑动距离
+        int scrollOffset;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel source) {
+            super(source);
+            status = source.readInt();
+            itemCount = source.readInt();
+            closedItems = source.createLongArray();
+            selectedItems = source.createLongArray();
+            virtualized = source.readInt() != 0;
+            firstIndex = source.readInt();
+            scrollOffset = source.readInt();
+        }
+
+        void copyFrom(SavedState other){
+            status = other.status;
+            itemCount = other.itemCount;
+            closedItems = other.closedItems;
+            selectedItems = other.selectedItems;
+            virtualized = other.virtualized;
+            firstIndex = other.firstIndex;
+            scrollOffset = other.scrollOffset;
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(status);
+            out.writeInt(itemCount);
+            out.writeLongArray(closedItems);
+            out.writeLongArray(selectedItems);
+            out.writeInt(virtualized ? 1 : 0);
+            out.writeInt(firstIndex);
+            out.writeInt(scrollOffset);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
 }
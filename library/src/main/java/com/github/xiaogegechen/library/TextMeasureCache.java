@@ -0,0 +1,219 @@
+package com.github.xiaogegechen.library;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 进程内共享的文字测量缓存，按照文字、字号和字体缓存文字范围和字体度量，ColorTextView和CornerButton在测量和绘制时都从
+ * 这里取，列表中有大量相同文字时可以省去重复的测量。缓存有大小上限，超过上限时淘汰最久没有使用的，命中时不分配内存
+ *
+ * @since v1.5.0
+ */
+public final class TextMeasureCache {
+
+    /**
+     * 默认最多缓存的条数
+     */
+    public static final int MAX_SIZE_DEFAULT = 256;
+
+    private static final Object sLock = new Object();
+    private static int sMaxSize = MAX_SIZE_DEFAULT;
+    private static long sHitCount = 0;
+    private static long sMissCount = 0;
+    // 按访问顺序排列，最久没有使用的在最前面
+    private static final LinkedHashMap<Key, Entry> sCache = new LinkedHashMap<Key, Entry>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > sMaxSize;
+        }
+    };
+    // 查找时复用的key，命中时不需要创建新的对象
+    private static final Key sProbe = new Key();
+    // 没有命中时测量字体度量使用
+    private static final Paint.FontMetrics sMissMetrics = new Paint.FontMetrics();
+
+    private TextMeasureCache() {}
+
+    /**
+     * 测量文字范围和字体度量，结果和直接调用{@link Paint#getTextBounds(String, int, int, Rect)}、
+     * {@link Paint#getFontMetrics(Paint.FontMetrics)}相同
+     * @param paint 画笔，按照它的字号和字体缓存
+     * @param text 文字，null按照空字符串处理
+     * @param outBounds 文字范围，可以为null
+     * @param outMetrics 字体度量，可以为null
+     */
+    public static void measure(Paint paint, String text, Rect outBounds, Paint.FontMetrics outMetrics){
+        lookup(paint, text, outBounds, outMetrics);
+    }
+
+    /**
+     * 和{@link #measure(Paint, String, Rect, Paint.FontMetrics)}相同，同时返回是否命中，库中的控件用来统计
+     * @return 是否命中
+     *
+     * @since v1.7.0
+     */
+    static boolean lookup(Paint paint, String text, Rect outBounds, Paint.FontMetrics outMetrics){
+        boolean hit;
+        if(text == null){
+            text = "";
+        }
+        synchronized (sLock){
+            sProbe.set(text, paint.getTextSize(), paint.getTypeface());
+            Entry entry = sCache.get(sProbe);
+            hit = entry != null;
+            if(hit){
+                sHitCount++;
+            }else{
+                sMissCount++;
+                entry = new Entry();
+                paint.getTextBounds(text, 0, text.length(), entry.mBounds);
+                paint.getFontMetrics(sMissMetrics);
+                entry.setMetrics(sMissMetrics);
+                Key key = new Key();
+                key.set(text, paint.getTextSize(), paint.getTypeface());
+                sCache.put(key, entry);
+            }
+            if(outBounds != null){
+                outBounds.set(entry.mBounds);
+            }
+            if(outMetrics != null){
+                entry.getMetrics(outMetrics);
+            }
+        }
+        return hit;
+    }
+
+    /**
+     * 设置最多缓存的条数，变小时立即淘汰多出来的
+     * @param maxSize 最多缓存的条数，不小于1
+     */
+    public static void setMaxSize(int maxSize){
+        if(maxSize < 1){
+            throw new IllegalArgumentException("maxSize must be positive, but is " + maxSize);
+        }
+        synchronized (sLock){
+            sMaxSize = maxSize;
+            Iterator<Map.Entry<Key, Entry>> iterator = sCache.entrySet().iterator();
+            while (sCache.size() > sMaxSize && iterator.hasNext()){
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return 最多缓存的条数
+     */
+    public static int getMaxSize(){
+        synchronized (sLock){
+            return sMaxSize;
+        }
+    }
+
+    /**
+     * @return 当前缓存的条数
+     */
+    public static int size(){
+        synchronized (sLock){
+            return sCache.size();
+        }
+    }
+
+    /**
+     * @return 命中的次数
+     */
+    public static long getHitCount(){
+        synchronized (sLock){
+            return sHitCount;
+        }
+    }
+
+    /**
+     * @return 没有命中的次数
+     */
+    public static long getMissCount(){
+        synchronized (sLock){
+            return sMissCount;
+        }
+    }
+
+    /**
+     * 清空缓存和命中统计
+     */
+    public static void clear(){
+        synchronized (sLock){
+            sCache.clear();
+            sHitCount = 0;
+            sMissCount = 0;
+        }
+    }
+
+    // 缓存的key：文字、字号、字体
+    private static final class Key {
+        private String mText;
+        private float mTextSize;
+        private Typeface mTypeface;
+        private int mHashCode;
+
+        void set(String text, float textSize, Typeface typeface){
+            mText = text;
+            mTextSize = textSize;
+            mTypeface = typeface;
+            int hashCode = text.hashCode();
+            hashCode = 31 * hashCode + Float.floatToIntBits(textSize);
+            hashCode = 31 * hashCode + (typeface == null ? 0 : typeface.hashCode());
+            mHashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o){
+                return true;
+            }
+            if(!(o instanceof Key)){
+                return false;
+            }
+            Key key = (Key) o;
+            return mHashCode == key.mHashCode
+                    && Float.compare(mTextSize, key.mTextSize) == 0
+                    && (mTypeface == null ? key.mTypeface == null : mTypeface.equals(key.mTypeface))
+                    && mText.equals(key.mText);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+
+    // 缓存的测量结果
+    private static final class Entry {
+        private final Rect mBounds = new Rect();
+        private float mTop;
+        private float mAscent;
+        private float mDescent;
+        private float mBottom;
+        private float mLeading;
+
+        void setMetrics(Paint.FontMetrics metrics){
+            mTop = metrics.top;
+            mAscent = metrics.ascent;
+            mDescent = metrics.descent;
+            mBottom = metrics.bottom;
+            mLeading = metrics.leading;
+        }
+
+        void getMetrics(Paint.FontMetrics outMetrics){
+            outMetrics.top = mTop;
+            outMetrics.ascent = mAscent;
+            outMetrics.descent = mDescent;
+            outMetrics.bottom = mBottom;
+            outMetrics.leading = mLeading;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.xiaogegechen.library;
+
+import android.os.Build;
+import android.os.Trace;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * 所有控件共用的性能统计。测量、布局、绘制和动画的每一步都会输出{@link Trace}区间，可以直接在systrace或者Perfetto中看到，
+ * 区间名是"控件名#步骤"，例如"MenuView#onLayout"。同时每一次测量、绘制、缓存命中和requestLayout()等事件都会交给
+ * 通过{@link #setSink(Sink)}设置的{@link Sink}，没有设置时只有一次判空的开销。事件只在主线程产生，传递的都是int，不分配内存
+ *
+ * @since v1.7.0
+ */
+public final class ViewMetrics {
+
+    /**
+     * 控件类型
+     */
+    @IntDef({
+            VIEW_COLOR_TEXT_VIEW,
+            VIEW_CORNER_BUTTON,
+            VIEW_MENU_VIEW
+    })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface ViewType {}
+    public static final int VIEW_COLOR_TEXT_VIEW = 0;
+    public static final int VIEW_CORNER_BUTTON = 1;
+    public static final int VIEW_MENU_VIEW = 2;
+    /**
+     * 控件类型的个数
+     */
+    public static final int VIEW_TYPE_COUNT = 3;
+
+    /**
+     * 事件
+     */
+    @IntDef({
+            EVENT_MEASURE,
+            EVENT_LAYOUT,
+            EVENT_DRAW,
+            EVENT_REQUEST_LAYOUT,
+            EVENT_CACHE_HIT,
+            EVENT_CACHE_MISS,
+            EVENT_ANIMATION_FRAME
+    })
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Event {}
+    /**
+     * 执行了一次onMeasure()
+     */
+    public static final int EVENT_MEASURE = 0;
+    /**
+     * 执行了一次onLayout()
+     */
+    public static final int EVENT_LAYOUT = 1;
+    /**
+     * 执行了一次绘制
+     */
+    public static final int EVENT_DRAW = 2;
+    /**
+     * 调用了一次requestLayout()
+     */
+    public static final int EVENT_REQUEST_LAYOUT = 3;
+    /**
+     * 文字测量、着色器、文字路径、快照等缓存命中
+     */
+    public static final int EVENT_CACHE_HIT = 4;
+    /**
+     * 缓存没有命中，重新计算
+     */
+    public static final int EVENT_CACHE_MISS = 5;
+    /**
+     * 动画推进了一帧
+     */
+    public static final int EVENT_ANIMATION_FRAME = 6;
+    /**
+     * 事件的个数
+     */
+    public static final int EVENT_COUNT = 7;
+
+    /**
+     * 接收事件，在主线程回调，每一帧可能回调很多次，实现时不能分配内存，也不能做耗时操作。线上抽样时可以在这里按照
+     * 采样率累加，再定期上报
+     */
+    public interface Sink {
+        /**
+         * 发生了一次事件
+         * @param viewType 控件类型
+         * @param event 事件
+         */
+        void onEvent(@ViewType int viewType, @Event int event);
+    }
+
+    /**
+     * 按照控件类型和事件分别计数的{@link Sink}，只在主线程使用
+     */
+    public static final class Counter implements Sink {
+        private final long[] mCounts = new long[VIEW_TYPE_COUNT * EVENT_COUNT];
+
+        @Override
+        public void onEvent(int viewType, int event) {
+            mCounts[viewType * EVENT_COUNT + event]++;
+        }
+
+        /**
+         * 拿到某种控件某个事件的次数
+         * @param viewType 控件类型
+         * @param event 事件
+         * @return 次数
+         */
+        public long getCount(@ViewType int viewType, @Event int event){
+            return mCounts[viewType * EVENT_COUNT + event];
+        }
+
+        /**
+         * 清空所有计数
+         */
+        public void reset(){
+            for (int i = 0; i < mCounts.length; i++) {
+                mCounts[i] = 0;
+            }
+        }
+    }
+
+    // Trace需要API 18
+    private static final boolean TRACE_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    private static Sink sSink;
+
+    private ViewMetrics() {}
+
+    /**
+     * 设置接收事件的{@link Sink}，在主线程调用，设置为null停止统计
+     * @param sink 接收事件的对象
+     */
+    public static void setSink(Sink sink){
+        sSink = sink;
+    }
+
+    /**
+     * @return 当前接收事件的对象，没有时返回null
+     */
+    public static Sink getSink(){
+        return sSink;
+    }
+
+    // 记录一次事件
+    static void record(int viewType, int event){
+        Sink sink = sSink;
+        if(sink != null){
+            sink.onEvent(viewType, event);
+        }
+    }
+
+    // 记录一次缓存是否命中
+    static void recordCache(int viewType, boolean hit){
+        record(viewType, hit ? EVENT_CACHE_HIT : EVENT_CACHE_MISS);
+    }
+
+    // 开始一个Trace区间，必须和endSection()成对调用，name使用常量，避免拼接字符串
+    static void beginSection(String name){
+        if(TRACE_SUPPORTED){
+            Trace.beginSection(name);
+        }
+    }
+
+    static void endSection(){
+        if(TRACE_SUPPORTED){
+            Trace.endSection();
+        }
+    }
+}
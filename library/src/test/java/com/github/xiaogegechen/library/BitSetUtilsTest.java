@@ -0,0 +1,84 @@
+package com.github.xiaogegechen.library;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * BitSetUtils的平移和序列化
+ */
+public class BitSetUtilsTest {
+
+    private static BitSet bits(String value){
+        BitSet bits = new BitSet ();
+        for (int i = 0; i < value.length (); i++) {
+            if(value.charAt (i) == '1'){
+                bits.set (i);
+            }
+        }
+        return bits;
+    }
+
+    @Test
+    public void insert_shiftsTail() {
+        BitSet bits = bits ("1011");
+        BitSetUtils.insert (bits, 1, 2, false);
+        assertEquals (bits ("100011"), bits);
+        BitSetUtils.insert (bits, 0, 1, true);
+        assertEquals (bits ("1100011"), bits);
+    }
+
+    @Test
+    public void insert_afterEnd() {
+        BitSet bits = bits ("1");
+        BitSetUtils.insert (bits, 3, 2, true);
+        assertEquals (bits ("10011"), bits);
+    }
+
+    @Test
+    public void remove_shiftsTail() {
+        BitSet bits = bits ("110101");
+        BitSetUtils.remove (bits, 1, 2);
+        assertEquals (bits ("1101"), bits);
+        BitSetUtils.remove (bits, 2, 10);
+        assertEquals (bits ("11"), bits);
+        BitSetUtils.remove (bits, 5, 1);
+        assertEquals (bits ("11"), bits);
+    }
+
+    @Test
+    public void move_forwardAndBackward() {
+        BitSet bits = bits ("1000");
+        BitSetUtils.move (bits, 0, 3);
+        assertEquals (bits ("0001"), bits);
+        BitSetUtils.move (bits, 3, 1);
+        assertEquals (bits ("0100"), bits);
+    }
+
+    @Test
+    public void longArray_roundTrip() {
+        BitSet bits = new BitSet ();
+        bits.set (0);
+        bits.set (63);
+        bits.set (64);
+        bits.set (130);
+        long[] words = BitSetUtils.toLongArray (bits);
+        assertArrayEquals (new long[]{1L | (1L << 63), 1L, 1L << 2}, words);
+        BitSet restored = bits ("1");
+        BitSetUtils.fromLongArray (words, 131, restored);
+        assertEquals (bits, restored);
+    }
+
+    @Test
+    public void fromLongArray_keepsOnlyCount() {
+        BitSet bits = bits ("1111");
+        BitSet restored = new BitSet ();
+        BitSetUtils.fromLongArray (BitSetUtils.toLongArray (bits), 2, restored);
+        assertEquals (bits ("11"), restored);
+        BitSetUtils.fromLongArray (new long[0], 10, restored);
+        assertEquals (new BitSet (), restored);
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.xiaogegechen.library;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.View.MeasureSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import static com.github.xiaogegechen.library.FrameAllocations.assertNoSteadyStateAllocation;
+
+/**
+ * ColorTextView在稳定状态下measure、layout、draw都不分配内存
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 29)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ColorTextViewAllocationTest {
+
+    private static final int EXACTLY_WIDTH = MeasureSpec.makeMeasureSpec (600, MeasureSpec.EXACTLY);
+    private static final int EXACTLY_HEIGHT = MeasureSpec.makeMeasureSpec (400, MeasureSpec.EXACTLY);
+    private static final int WRAP_WIDTH = MeasureSpec.makeMeasureSpec (600, MeasureSpec.AT_MOST);
+    private static final int WRAP_HEIGHT = MeasureSpec.makeMeasureSpec (400, MeasureSpec.AT_MOST);
+
+    private ColorTextView mView;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication ();
+        mView = new ColorTextView (context);
+        mView.setText ("98");
+        mView.setTextSize (100);
+    }
+
+    // 控件没有重写onLayout，检查的帧只包括测量和onDraw
+    private void assertNoFrameAllocation(final int widthMeasureSpec, final int heightMeasureSpec){
+        assertNoSteadyStateAllocation (mView, widthMeasureSpec, heightMeasureSpec, new FrameAllocations.Frame () {
+            @Override
+            public void run(Canvas canvas) {
+                FrameAllocations.measure (mView, widthMeasureSpec, heightMeasureSpec);
+                mView.onDraw (canvas);
+            }
+        });
+    }
+
+    @Test
+    public void exactSize_doesNotAllocate() {
+        assertNoFrameAllocation (EXACTLY_WIDTH, EXACTLY_HEIGHT);
+    }
+
+    @Test
+    public void wrapContent_doesNotAllocate() {
+        assertNoFrameAllocation (WRAP_WIDTH, WRAP_HEIGHT);
+    }
+
+    @Test
+    public void gradientAnimation_doesNotAllocate() {
+        mView.setGradientAnimation (ColorTextView.GRADIENT_ANIMATION_TRANSLATE);
+        assertNoFrameAllocation (EXACTLY_WIDTH, EXACTLY_HEIGHT);
+        mView.setGradientAnimation (ColorTextView.GRADIENT_ANIMATION_ROTATE);
+        assertNoFrameAllocation (EXACTLY_WIDTH, EXACTLY_HEIGHT);
+    }
+
+    @Test
+    public void largeText_doesNotAllocate() {
+        mView.setTextSize (300);
+        assertNoFrameAllocation (WRAP_WIDTH, WRAP_HEIGHT);
+    }
+
+    @Test
+    public void multiLine_doesNotAllocate() {
+        mView.setMultiLine (true);
+        mView.setMaxLines (2);
+        mView.setText ("a long text which has to be wrapped into several lines");
+        mView.setTextSize (40);
+        assertNoFrameAllocation (WRAP_WIDTH, WRAP_HEIGHT);
+    }
+}
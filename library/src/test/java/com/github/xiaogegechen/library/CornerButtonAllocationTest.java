@@ -0,0 +1,73 @@
+package com.github.xiaogegechen.library;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.view.View.MeasureSpec;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import static com.github.xiaogegechen.library.FrameAllocations.assertNoSteadyStateAllocation;
+
+/**
+ * CornerButton在稳定状态下measure、layout、draw都不分配内存
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 29)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class CornerButtonAllocationTest {
+
+    private static final int EXACTLY_WIDTH = MeasureSpec.makeMeasureSpec (500, MeasureSpec.EXACTLY);
+    private static final int EXACTLY_HEIGHT = MeasureSpec.makeMeasureSpec (120, MeasureSpec.EXACTLY);
+    private static final int WRAP_WIDTH = MeasureSpec.makeMeasureSpec (1000, MeasureSpec.AT_MOST);
+    private static final int WRAP_HEIGHT = MeasureSpec.makeMeasureSpec (400, MeasureSpec.AT_MOST);
+
+    private CornerButton mView;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication ();
+        mView = new CornerButton (context);
+        mView.edit ()
+                .text ("button")
+                .textSize (40)
+                .icon (new ColorDrawable (Color.RED))
+                .distance (10)
+                .borderWidth (2)
+                .apply ();
+    }
+
+    // 控件没有重写onLayout，检查的帧只包括测量和onDraw
+    private void assertNoFrameAllocation(final int widthMeasureSpec, final int heightMeasureSpec){
+        assertNoSteadyStateAllocation (mView, widthMeasureSpec, heightMeasureSpec, new FrameAllocations.Frame () {
+            @Override
+            public void run(Canvas canvas) {
+                FrameAllocations.measure (mView, widthMeasureSpec, heightMeasureSpec);
+                mView.onDraw (canvas);
+            }
+        });
+    }
+
+    @Test
+    public void exactSize_doesNotAllocate() {
+        assertNoFrameAllocation (EXACTLY_WIDTH, EXACTLY_HEIGHT);
+    }
+
+    @Test
+    public void wrapContent_doesNotAllocate() {
+        assertNoFrameAllocation (WRAP_WIDTH, WRAP_HEIGHT);
+    }
+
+    @Test
+    public void snapshot_doesNotAllocate() {
+        mView.setSnapshotEnabled (true);
+        assertNoFrameAllocation (EXACTLY_WIDTH, EXACTLY_HEIGHT);
+    }
+}
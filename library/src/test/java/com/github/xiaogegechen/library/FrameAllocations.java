@@ -0,0 +1,121 @@
+package com.github.xiaogegechen.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 统计测试线程上一帧（measure、layout、draw）分配的内存，用来保证控件在稳定状态下每一帧都不分配内存
+ *
+ * Robolectric的ShadowView拦截了View.draw和View.onLayout，每次都通过反射调用真正的实现并分配参数数组，
+ * 原生图形模式下的Paint、Canvas和TextView本身在稳定状态下不分配。所以检查的帧只执行控件自己重写的方法，
+ * 不经过这两个影子方法，预热时仍然走完整的一帧
+ */
+final class FrameAllocations {
+
+    // 预热的帧数，第一次测量、创建缓存等都在预热时完成
+    static final int WARM_UP_FRAMES = 200;
+    // 预热之后检查的帧数
+    static final int CHECKED_FRAMES = 100;
+    // 允许分配内存的帧数。JIT编译和invokedynamic调用点重新链接偶尔会在测试线程上分配，
+    // 这种分配只出现在个别帧里，而控件自己的分配每一帧都会出现
+    static final int MAX_NOISY_FRAMES = 5;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean ();
+
+    private FrameAllocations() {}
+
+    private static com.sun.management.ThreadMXBean threadBean(){
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean ();
+        if(bean instanceof com.sun.management.ThreadMXBean){
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if(sunBean.isThreadAllocatedMemorySupported ()){
+                sunBean.setThreadAllocatedMemoryEnabled (true);
+                return sunBean;
+            }
+        }
+        return null;
+    }
+
+    private static long allocatedBytes(){
+        return THREAD_BEAN.getThreadAllocatedBytes (Thread.currentThread ().getId ());
+    }
+
+    // 连续两次读取之间的差值，也就是读取本身的开销
+    private static long overhead(){
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long start = allocatedBytes ();
+            long end = allocatedBytes ();
+            min = Math.min (min, end - start);
+        }
+        return min;
+    }
+
+    /**
+     * 检查的一帧
+     */
+    interface Frame {
+        void run(Canvas canvas);
+    }
+
+    /**
+     * 强制重新测量
+     */
+    static void measure(View view, int widthMeasureSpec, int heightMeasureSpec){
+        view.forceLayout ();
+        view.measure (widthMeasureSpec, heightMeasureSpec);
+    }
+
+    /**
+     * 强制重新测量并布局，只能用于重写了onLayout的控件，否则会走到ShadowView.onLayout
+     */
+    static void layout(View view, int widthMeasureSpec, int heightMeasureSpec){
+        measure (view, widthMeasureSpec, heightMeasureSpec);
+        view.layout (0, 0, view.getMeasuredWidth (), view.getMeasuredHeight ());
+    }
+
+    /**
+     * 执行完整的一帧：强制重新测量、布局并绘制到canvas上
+     */
+    static void runFrame(View view, int widthMeasureSpec, int heightMeasureSpec, Canvas canvas){
+        layout (view, widthMeasureSpec, heightMeasureSpec);
+        view.draw (canvas);
+    }
+
+    /**
+     * 预热之后连续执行{@link #CHECKED_FRAMES}次frame，超过{@link #MAX_NOISY_FRAMES}次分配了内存就失败
+     */
+    static void assertNoSteadyStateAllocation(View view, int widthMeasureSpec, int heightMeasureSpec, Frame frame){
+        assumeTrue ("thread allocation counting is not supported on this JVM", THREAD_BEAN != null);
+        view.measure (widthMeasureSpec, heightMeasureSpec);
+        Bitmap bitmap = Bitmap.createBitmap (Math.max (1, view.getMeasuredWidth ()),
+                Math.max (1, view.getMeasuredHeight ()), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas (bitmap);
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            runFrame (view, widthMeasureSpec, heightMeasureSpec, canvas);
+            frame.run (canvas);
+        }
+        long overhead = overhead ();
+        int allocatingFrames = 0;
+        String firstAllocation = null;
+        for (int i = 0; i < CHECKED_FRAMES; i++) {
+            long start = allocatedBytes ();
+            frame.run (canvas);
+            long allocated = allocatedBytes () - start - overhead;
+            if(allocated > 0){
+                allocatingFrames++;
+                if(firstAllocation == null){
+                    firstAllocation = "frame " + i + " allocated " + allocated + " bytes";
+                }
+            }
+        }
+        assertTrue (allocatingFrames + " of " + CHECKED_FRAMES + " frames of " + view.getClass ().getSimpleName ()
+                + " allocated, first: " + firstAllocation, allocatingFrames <= MAX_NOISY_FRAMES);
+    }
+}
@@ -0,0 +1,202 @@
+package com.github.xiaogegechen.library;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * MenuDiffHelper计算出的更新操作依次作用在旧数据上之后必须得到新数据
+ */
+public class MenuDiffHelperTest {
+
+    // 数据用long表示，高32位是ID，低32位是内容
+    private static long item(int id, int content){
+        return ((long) id << 32) | content;
+    }
+
+    private static MenuDiffHelper.Callback callback(final List<Long> oldList, final List<Long> newList){
+        return new MenuDiffHelper.Callback () {
+            @Override
+            public int getOldListSize() {
+                return oldList.size ();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size ();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return (oldList.get (oldPosition) >> 32) == (newList.get (newPosition) >> 32);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return oldList.get (oldPosition).equals (newList.get (newPosition));
+            }
+        };
+    }
+
+    // 把更新操作作用在旧数据的副本上，改变的位置从新数据中取
+    private static List<Long> apply(List<Long> oldList, final List<Long> newList, boolean detectMoves){
+        final List<Long> current = new ArrayList<> (oldList);
+        MenuDiffHelper.calculateDiff (callback (oldList, newList), detectMoves).dispatchUpdatesTo (new MenuDiffHelper.UpdateCallback () {
+            @Override
+            public void onRemoved(int position, int count) {
+                current.subList (position, position + count).clear ();
+            }
+
+            @Override
+            public void onInserted(int position, int count) {
+                for (int i = 0; i < count; i++) {
+                    current.add (position + i, newList.get (position + i));
+                }
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                current.add (toPosition, current.remove (fromPosition));
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                for (int i = position; i < position + count; i++) {
+                    current.set (i, newList.get (i));
+                }
+            }
+        });
+        return current;
+    }
+
+    private static void assertDiff(List<Long> oldList, List<Long> newList){
+        assertEquals (newList, apply (oldList, newList, true));
+        assertEquals (newList, apply (oldList, newList, false));
+    }
+
+    @Test
+    public void sameList_hasNoUpdates() {
+        List<Long> list = Arrays.asList (item (1, 0), item (2, 0), item (3, 0));
+        assertEquals (0, MenuDiffHelper.calculateDiff (callback (list, list)).getUpdateCount ());
+    }
+
+    @Test
+    public void emptyLists() {
+        List<Long> empty = new ArrayList<> ();
+        List<Long> list = Arrays.asList (item (1, 0), item (2, 0));
+        assertDiff (empty, empty);
+        assertDiff (empty, list);
+        assertDiff (list, empty);
+    }
+
+    @Test
+    public void insertRemoveChange() {
+        List<Long> oldList = Arrays.asList (item (1, 0), item (2, 0), item (3, 0), item (4, 0));
+        List<Long> newList = Arrays.asList (item (0, 0), item (1, 0), item (3, 1), item (5, 0));
+        assertDiff (oldList, newList);
+    }
+
+    @Test
+    public void move_isDispatchedAsSingleMove() {
+        List<Long> oldList = Arrays.asList (item (1, 0), item (2, 0), item (3, 0), item (4, 0));
+        List<Long> newList = Arrays.asList (item (4, 0), item (1, 0), item (2, 0), item (3, 0));
+        assertDiff (oldList, newList);
+        final int[] moves = new int[1];
+        MenuDiffHelper.calculateDiff (callback (oldList, newList)).dispatchUpdatesTo (new CountingCallback () {
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                moves[0]++;
+            }
+        });
+        assertEquals (1, moves[0]);
+    }
+
+    @Test
+    public void reverse() {
+        List<Long> oldList = new ArrayList<> ();
+        List<Long> newList = new ArrayList<> ();
+        for (int i = 0; i < 50; i++) {
+            oldList.add (item (i, 0));
+            newList.add (0, item (i, 0));
+        }
+        assertDiff (oldList, newList);
+    }
+
+    @Test
+    public void randomLists() {
+        Random random = new Random (42);
+        for (int round = 0; round < 300; round++) {
+            List<Long> oldList = randomList (random, random.nextInt (30));
+            List<Long> newList = new ArrayList<> ();
+            for (long value : oldList) {
+                int op = random.nextInt (6);
+                if(op == 0){
+                    continue;
+                }
+                newList.add (op == 1 ? value + 1 : value);
+                if(op == 2){
+                    newList.add (item (1000 + random.nextInt (1000), 0));
+                }
+            }
+            // 打乱一部分
+            for (int i = 0; i < random.nextInt (4) && newList.size () > 1; i++) {
+                newList.add (random.nextInt (newList.size ()), newList.remove (random.nextInt (newList.size ())));
+            }
+            assertDiff (oldList, dedupe (newList));
+        }
+    }
+
+    @Test
+    public void largeListWithFewChanges() {
+        List<Long> oldList = new ArrayList<> ();
+        for (int i = 0; i < 5000; i++) {
+            oldList.add (item (i, 0));
+        }
+        List<Long> newList = new ArrayList<> (oldList);
+        newList.remove (10);
+        newList.add (2500, item (9000, 0));
+        newList.set (4000, item (4001, 7));
+        newList.add (0, newList.remove (4500));
+        assertDiff (oldList, newList);
+    }
+
+    private static List<Long> randomList(Random random, int size){
+        List<Long> list = new ArrayList<> ();
+        for (int i = 0; i < size; i++) {
+            list.add (item (i, random.nextInt (3)));
+        }
+        return list;
+    }
+
+    // ID必须唯一
+    private static List<Long> dedupe(List<Long> list){
+        List<Long> result = new ArrayList<> ();
+        List<Long> ids = new ArrayList<> ();
+        for (long value : list) {
+            if(!ids.contains (value >> 32)){
+                ids.add (value >> 32);
+                result.add (value);
+            }
+        }
+        return result;
+    }
+
+    private static class CountingCallback implements MenuDiffHelper.UpdateCallback {
+        @Override
+        public void onRemoved(int position, int count) {}
+
+        @Override
+        public void onInserted(int position, int count) {}
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {}
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {}
+    }
+}
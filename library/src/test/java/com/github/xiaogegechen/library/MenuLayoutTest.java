@@ -0,0 +1,136 @@
+package com.github.xiaogegechen.library;
+
+import android.content.Context;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 虚拟化容器在局部数据改变之后绑定的子View和数据保持一致
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MenuLayoutTest {
+
+    private static final int ITEM_HEIGHT = 50;
+    private static final int WIDTH = MeasureSpec.makeMeasureSpec (1080, MeasureSpec.EXACTLY);
+    private static final int HEIGHT = MeasureSpec.makeMeasureSpec (200, MeasureSpec.EXACTLY);
+
+    private Context mContext;
+    private final List<String> mItems = new ArrayList<> ();
+    private MenuLayout mLayout;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.getApplication ();
+        mLayout = new MenuLayout (mContext, LinearLayout.VERTICAL, 1);
+        mLayout.setItemSource (new MenuLayout.ItemSource () {
+            @Override
+            public int getItemCount() {
+                return mItems.size ();
+            }
+
+            @Override
+            public int getItemViewType(int layoutIndex) {
+                return 0;
+            }
+
+            @Override
+            public View getView(int layoutIndex, View convertView, ViewGroup parent) {
+                TextView textView = convertView == null ? new TextView (mContext) : (TextView) convertView;
+                textView.setLayoutParams (new ViewGroup.LayoutParams (ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+                textView.setText (mItems.get (layoutIndex));
+                return textView;
+            }
+
+            @Override
+            public View rebindView(View view, int layoutIndex, Object payload, ViewGroup parent) {
+                return getView (layoutIndex, view, parent);
+            }
+
+            @Override
+            public void onViewAttached(View view, int layoutIndex) {}
+
+            @Override
+            public void onViewRecycled(View view) {}
+        });
+    }
+
+    private void layout(){
+        mLayout.measure (WIDTH, HEIGHT);
+        mLayout.layout (0, 0, mLayout.getMeasuredWidth (), mLayout.getMeasuredHeight ());
+    }
+
+    private void assertBound(){
+        for (int i = 0; i < mLayout.getChildCount (); i++) {
+            TextView child = (TextView) mLayout.getChildAt (i);
+            assertEquals (mItems.get (mLayout.getFirstIndex () + i), child.getText ().toString ());
+        }
+    }
+
+    private void addItems(int count){
+        for (int i = 0; i < count; i++) {
+            mItems.add ("item " + mItems.size ());
+        }
+    }
+
+    @Test
+    public void insert_whenNothingBound_bindsOnLayout() {
+        addItems (3);
+        layout ();
+        mItems.clear ();
+        mLayout.onItemRangeRemoved (0, 3);
+        layout ();
+        assertEquals (0, mLayout.getChildCount ());
+
+        addItems (5);
+        mLayout.onItemRangeInserted (0, 5);
+        layout ();
+        assertTrue (mLayout.getChildCount () > 0);
+        assertBound ();
+    }
+
+    @Test
+    public void insert_moreThanBound_keepsOrder() {
+        addItems (10);
+        layout ();
+        int childCount = mLayout.getChildCount ();
+        List<String> inserted = new ArrayList<> ();
+        for (int i = 0; i < childCount + 3; i++) {
+            inserted.add ("new " + i);
+        }
+        mItems.addAll (1, inserted);
+        mLayout.onItemRangeInserted (1, inserted.size ());
+        layout ();
+        assertBound ();
+    }
+
+    @Test
+    public void insert_beforeFirstBound_shiftsFirstIndex() {
+        addItems (20);
+        layout ();
+        mLayout.scrollBy (ITEM_HEIGHT * 10);
+        int firstIndex = mLayout.getFirstIndex ();
+        assertTrue (firstIndex > 0);
+        mItems.add (0, "new");
+        mLayout.onItemRangeInserted (0, 1);
+        layout ();
+        assertEquals (firstIndex + 1, mLayout.getFirstIndex ());
+        assertBound ();
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.xiaogegechen.library;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import static com.github.xiaogegechen.library.FrameAllocations.assertNoSteadyStateAllocation;
+
+/**
+ * MenuView在稳定状态下measure、layout、draw都不分配内存
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 29)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class MenuViewAllocationTest {
+
+    private static final int ITEM_COUNT = 20;
+    private static final int EXACTLY_WIDTH = MeasureSpec.makeMeasureSpec (1080, MeasureSpec.EXACTLY);
+    private static final int EXACTLY_HEIGHT = MeasureSpec.makeMeasureSpec (200, MeasureSpec.EXACTLY);
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.getApplication ();
+    }
+
+    private MenuView createMenuView(boolean virtualized){
+        MenuView menuView = new MenuView (mContext);
+        menuView.setVirtualized (virtualized);
+        menuView.setAdapter (new MenuView.Adapter () {
+            @Override
+            public View getView(int position, ViewGroup parent) {
+                TextView textView = new TextView (mContext);
+                textView.setText ("item " + position);
+                return textView;
+            }
+
+            @Override
+            public int getCount() {
+                return ITEM_COUNT;
+            }
+        });
+        return menuView;
+    }
+
+    // 绘制时只是由框架绘制子View，每个子View都会走到ShadowView.draw，所以检查的帧只包括测量和布局
+    private static void assertNoFrameAllocation(final MenuView menuView){
+        assertNoSteadyStateAllocation (menuView, EXACTLY_WIDTH, EXACTLY_HEIGHT, new FrameAllocations.Frame () {
+            @Override
+            public void run(Canvas canvas) {
+                FrameAllocations.layout (menuView, EXACTLY_WIDTH, EXACTLY_HEIGHT);
+            }
+        });
+    }
+
+    @Test
+    public void open_doesNotAllocate() {
+        assertNoFrameAllocation (createMenuView (false));
+    }
+
+    @Test
+    public void virtualized_doesNotAllocate() {
+        assertNoFrameAllocation (createMenuView (true));
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.xiaogegechen.library;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 反向时Adapter位置和布局下标之间的转换，以及按位置记录稳定ID的LongList
+ */
+public class MenuViewIndexTest {
+
+    @Test
+    public void toAdapterPosition_reverse() {
+        assertEquals (2, MenuView.toAdapterPosition (false, 2, 5));
+        assertEquals (4, MenuView.toAdapterPosition (true, 0, 5));
+        assertEquals (0, MenuView.toAdapterPosition (true, 4, 5));
+    }
+
+    @Test
+    public void toLayoutStart_reverse() {
+        assertEquals (1, MenuView.toLayoutStart (false, 1, 2, 5));
+        // 位置1、2在反向时是布局下标3、2
+        assertEquals (2, MenuView.toLayoutStart (true, 1, 2, 5));
+        // 在末尾插入，count是插入之后的个数
+        assertEquals (0, MenuView.toLayoutStart (true, 5, 2, 7));
+        // 在开头插入
+        assertEquals (5, MenuView.toLayoutStart (true, 0, 2, 7));
+    }
+
+    @Test
+    public void toLayoutStart_matchesAdapterPosition() {
+        int count = 9;
+        for (int start = 0; start < count; start++) {
+            for (int itemCount = 1; start + itemCount <= count; itemCount++) {
+                int layoutStart = MenuView.toLayoutStart (true, start, itemCount, count);
+                for (int i = 0; i < itemCount; i++) {
+                    int position = MenuView.toAdapterPosition (true, layoutStart + i, count);
+                    assertTrue (position >= start && position < start + itemCount);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void longList_insertRemoveMove() {
+        LongList list = new LongList (1);
+        for (int i = 0; i < 5; i++) {
+            list.add (i);
+        }
+        list.add (0, 10);
+        assertList (list, 10, 0, 1, 2, 3, 4);
+        list.removeRange (1, 2);
+        assertList (list, 10, 2, 3, 4);
+        list.move (0, 3);
+        assertList (list, 2, 3, 4, 10);
+        list.move (3, 1);
+        assertList (list, 2, 10, 3, 4);
+        list.clear ();
+        assertEquals (0, list.size ());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void longList_getOutOfRange() {
+        LongList list = new LongList ();
+        list.add (1);
+        list.get (1);
+    }
+
+    private static void assertList(LongList list, long... values){
+        assertEquals (values.length, list.size ());
+        for (int i = 0; i < values.length; i++) {
+            assertEquals (values[i], list.get (i));
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.github.xiaogegechen.library;
+
+import android.content.Context;
+import android.os.Parcelable;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MenuView的状态机：展开和关闭、选中、保存和恢复、延迟创建以及差异分发
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MenuViewTest {
+
+    private static final int WIDTH = MeasureSpec.makeMeasureSpec (1080, MeasureSpec.EXACTLY);
+    private static final int HEIGHT = MeasureSpec.makeMeasureSpec (1920, MeasureSpec.AT_MOST);
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.getApplication ();
+    }
+
+    /**
+     * 记录创建和绑定次数的Adapter，ID就是文字的hashCode
+     */
+    private class TestAdapter extends MenuView.Adapter {
+        final List<String> mItems;
+        final boolean mBindInPlace;
+        int mCreateCount = 0;
+        final List<Object> mPayloads = new ArrayList<> ();
+
+        TestAdapter(boolean bindInPlace, String... items) {
+            mBindInPlace = bindInPlace;
+            mItems = new ArrayList<> (Arrays.asList (items));
+        }
+
+        @Override
+        public View getView(int position, ViewGroup parent) {
+            mCreateCount++;
+            TextView textView = new TextView (mContext);
+            textView.setText (mItems.get (position));
+            textView.setSelected (isItemSelected (position));
+            return textView;
+        }
+
+        @Override
+        public int getCount() {
+            return mItems.size ();
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mItems.get (position).hashCode ();
+        }
+
+        @Override
+        public boolean onBindView(int position, View view, Object payload) {
+            mPayloads.add (payload);
+            if(!mBindInPlace){
+                return super.onBindView (position, view, payload);
+            }
+            ((TextView) view).setText (mItems.get (position));
+            view.setSelected (isItemSelected (position));
+            return true;
+        }
+    }
+
+    private MenuView createMenuView(MenuView.Adapter adapter){
+        MenuView menuView = new MenuView (mContext);
+        menuView.setItemAnimator (MenuItemAnimator.alpha ());
+        menuView.setAnimationDuration (100);
+        menuView.setAdapter (adapter);
+        layout (menuView);
+        return menuView;
+    }
+
+    private static void layout(MenuView menuView){
+        menuView.measure (WIDTH, HEIGHT);
+        menuView.layout (0, 0, menuView.getMeasuredWidth (), menuView.getMeasuredHeight ());
+    }
+
+    private static void finishAnimations(){
+        ShadowLooper.idleMainLooper (10, TimeUnit.SECONDS);
+    }
+
+    private static ViewGroup container(MenuView menuView){
+        return (ViewGroup) menuView.getChildAt (0);
+    }
+
+    // 子View的开闭状态通过透明度体现，1表示展开，0表示关闭
+    private static void assertOpenState(MenuView menuView, boolean... open){
+        ViewGroup container = container (menuView);
+        assertEquals (open.length, container.getChildCount ());
+        for (int i = 0; i < open.length; i++) {
+            assertEquals ("item " + i, open[i] ? 1f : 0f, container.getChildAt (i).getAlpha (), 0f);
+        }
+    }
+
+    private static void assertTexts(MenuView menuView, List<String> texts){
+        ViewGroup container = container (menuView);
+        assertEquals (texts.size (), container.getChildCount ());
+        for (int i = 0; i < texts.size (); i++) {
+            assertEquals (texts.get (i), ((TextView) container.getChildAt (i)).getText ().toString ());
+        }
+    }
+
+    @Test
+    public void close_settlesClosed() {
+        MenuView menuView = createMenuView (new TestAdapter (true, "a", "b", "c"));
+        assertEquals (MenuView.OPEN, menuView.getStatus ());
+        menuView.close ();
+        assertEquals (MenuView.ANIMATING, menuView.getStatus ());
+        finishAnimations ();
+        assertEquals (MenuView.CLOSE, menuView.getStatus ());
+        assertOpenState (menuView, false, false, false);
+    }
+
+    @Test
+    public void toggleTwice_returnsToOpen() {
+        MenuView menuView = createMenuView (new TestAdapter (true, "a", "b", "c"));
+        menuView.toggle ();
+        menuView.toggle ();
+        finishAnimations ();
+        assertEquals (MenuView.OPEN, menuView.getStatus ());
+        assertOpenState (menuView, true, true, true);
+    }
+
+    @Test
+    public void partialClose_keepsOtherItemsOpen() {
+        MenuView menuView = createMenuView (new TestAdapter (true, "a", "b", "c", "d"));
+        menuView.close (1, 2);
+        finishAnimations ();
+        assertOpenState (menuView, true, false, false, true);
+        menuView.open ();
+        finishAnimations ();
+        assertEquals (MenuView.OPEN, menuView.getStatus ());
+        assertOpenState (menuView, true, true, true, true);
+    }
+
+    @Test
+    public void jump_appliesStateWithoutAnimation() {
+        MenuView menuView = createMenuView (new TestAdapter (true, "a", "b", "c"));
+        menuView.jumpToClosed ();
+        assertEquals (MenuView.CLOSE, menuView.getStatus ());
+        assertOpenState (menuView, false, false, false);
+        menuView.jumpToOpen (0, 0);
+        assertEquals (MenuView.OPEN, menuView.getStatus ());
+        assertOpenState (menuView, true, false, false);
+    }
+
+    @Test
+    public void singleSelection_rebindsWithPayload() {
+        TestAdapter adapter = new TestAdapter (true, "a", "b", "c");
+        MenuView menuView = createMenuView (adapter);
+        int created = adapter.mCreateCount;
+        menuView.setItemSelected (1, true);
+        menuView.setItemSelected (2, true);
+        assertEquals (2, menuView.getSelectedPosition ());
+        assertFalse (menuView.isItemSelected (1));
+        assertFalse (container (menuView).getChildAt (1).isSelected ());
+        assertTrue (container (menuView).getChildAt (2).isSelected ());
+        assertEquals (created, adapter.mCreateCount);
+        for (Object payload : adapter.mPayloads) {
+            assertSame (MenuView.PAYLOAD_SELECTION, payload);
+        }
+    }
+
+    @Test
+    public void selection_neverReinflatesWhenBindingIsNotSupported() {
+        TestAdapter adapter = new TestAdapter (false, "a", "b", "c");
+        MenuView menuView = createMenuView (adapter);
+        View child = container (menuView).getChildAt (1);
+        int created = adapter.mCreateCount;
+        menuView.setItemSelected (1, true);
+        menuView.setItemSelected (1, false);
+        assertEquals (created, adapter.mCreateCount);
+        assertSame (child, container (menuView).getChildAt (1));
+    }
+
+    @Test
+    public void choiceModeNone_ignoresSelection() {
+        MenuView menuView = createMenuView (new TestAdapter (true, "a", "b"));
+        menuView.setChoiceMode (MenuView.CHOICE_MODE_NONE);
+        menuView.setItemSelected (0, true);
+        assertEquals (-1, menuView.getSelectedPosition ());
+    }
+
+    @Test
+    public void saveAndRestore_keepsClosedAndSelectedItems() {
+        MenuView menuView = createMenuView (new TestAdapter (true, "a", "b", "c", "d"));
+        menuView.setId (1);
+        menuView.jumpToClosed (1, 2);
+        menuView.setItemSelected (3, true);
+        SparseArray<Parcelable> state = new SparseArray<> ();
+        menuView.saveHierarchyState (state);
+
+        MenuView restored = createMenuView (new TestAdapter (true, "a", "b", "c", "d"));
+        restored.setId (1);
+        restored.restoreHierarchyState (state);
+        assertEquals (MenuView.CLOSE, restored.getStatus ());
+        assertOpenState (restored, true, false, false, true);
+        assertTrue (restored.isItemSelected (3));
+    }
+
+    // 平移效果下关闭的子View必须完全移出容器左边，展开的子View没有平移
+    private static void assertTranslated(MenuView menuView, boolean... open){
+        ViewGroup container = container (menuView);
+        assertEquals (open.length, container.getChildCount ());
+        for (int i = 0; i < open.length; i++) {
+            View child = container.getChildAt (i);
+            assertTrue ("item " + i, child.getRight () > 0);
+            assertEquals ("item " + i, open[i] ? 0f : -child.getRight (), child.getTranslationX (), 0f);
+        }
+    }
+
+    @Test
+    public void translation_restoreBeforeLayout_movesClosedItemsOut() {
+        MenuView menuView = createMenuView (new TestAdapter (true, "a", "b", "c", "d"));
+        menuView.setId (1);
+        menuView.jumpToClosed (1, 2);
+        SparseArray<Parcelable> state = new SparseArray<> ();
+        menuView.saveHierarchyState (state);
+
+        // 恢复时还没有布局，子View的位置都是0
+        MenuView restored = new MenuView (mContext);
+        restored.setId (1);
+        restored.setItemAnimator (MenuItemAnimator.translation ());
+        restored.setAdapter (new TestAdapter (true, "a", "b", "c", "d"));
+        restored.restoreHierarchyState (state);
+        layout (restored);
+        assertTranslated (restored, true, false, false, true);
+    }
+
+    @Test
+    public void translation_jumpBeforeLayoutAndInsert_movesClosedItemsOut() {
+        MenuView menuView = new MenuView (mContext);
+        menuView.setItemAnimator (MenuItemAnimator.translation ());
+        TestAdapter adapter = new TestAdapter (true, "a", "b");
+        menuView.setAdapter (adapter);
+        menuView.jumpToClosed ();
+        layout (menuView);
+        assertTranslated (menuView, false, false);
+
+        adapter.mItems.add (1, "x");
+        adapter.notifyItemInserted (1);
+        layout (menuView);
+        assertTranslated (menuView, false, false, false);
+    }
+
+    @Test
+    public void lazy_measuresPlaceholderUntilOpened() {
+        AttributeSet attrs = Robolectric.buildAttributeSet ()
+                .addAttribute (R.attr.menu_view_lazy, "true")
+                .addAttribute (R.attr.menu_view_placeholder_height, "40px")
+                .build ();
+        MenuView menuView = new MenuView (mContext, attrs);
+        menuView.setItemAnimator (MenuItemAnimator.alpha ());
+        TestAdapter adapter = new TestAdapter (true, "a", "b", "c");
+        menuView.setAdapter (adapter);
+        menuView.jumpToClosed ();
+        layout (menuView);
+        assertFalse (menuView.isPrepared ());
+        assertEquals (0, menuView.getChildCount ());
+        assertEquals (0, adapter.mCreateCount);
+        assertEquals (40, menuView.getMeasuredHeight ());
+
+        menuView.jumpToOpen ();
+        layout (menuView);
+        assertTrue (menuView.isPrepared ());
+        assertOpenState (menuView, true, true, true);
+    }
+
+    @Test
+    public void lazy_preparesOnFirstMeasureWhenOpen() {
+        AttributeSet attrs = Robolectric.buildAttributeSet ()
+                .addAttribute (R.attr.menu_view_lazy, "true")
+                .build ();
+        MenuView menuView = new MenuView (mContext, attrs);
+        menuView.setAdapter (new TestAdapter (true, "a", "b"));
+        assertFalse (menuView.isPrepared ());
+        layout (menuView);
+        assertTrue (menuView.isPrepared ());
+        assertEquals (2, container (menuView).getChildCount ());
+    }
+
+    @Test
+    public void diff_onlyCreatesInsertedItemsAndKeepsState() {
+        TestAdapter adapter = new TestAdapter (true, "a", "b", "c", "d");
+        MenuView menuView = createMenuView (adapter);
+        menuView.jumpToClosed (1, 1);
+        final List<String> oldItems = new ArrayList<> (adapter.mItems);
+        final List<String> newItems = Arrays.asList ("d", "a", "b", "x");
+        MenuDiffHelper.DiffResult result = MenuDiffHelper.calculateDiff (new MenuDiffHelper.Callback () {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size ();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newItems.size ();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldItems.get (oldPosition).equals (newItems.get (newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return true;
+            }
+        });
+        int created = adapter.mCreateCount;
+        adapter.mItems.clear ();
+        adapter.mItems.addAll (newItems);
+        result.dispatchUpdatesTo (adapter);
+        layout (menuView);
+        assertTexts (menuView, newItems);
+        assertEquals (created + 1, adapter.mCreateCount);
+        // b移动到了位置2，仍然是关闭的，新插入的x和整体状态一致，也是关闭的
+        assertOpenState (menuView, true, true, false, false);
+    }
+
+    @Test
+    public void dataSetChanged_restoresStateByStableId() {
+        TestAdapter adapter = new TestAdapter (true, "a", "b", "c");
+        MenuView menuView = createMenuView (adapter);
+        menuView.jumpToClosed (0, 0);
+        menuView.setItemSelected (2, true);
+        adapter.mItems.add (0, "z");
+        adapter.notifyDataSetChanged ();
+        layout (menuView);
+        assertTexts (menuView, Arrays.asList ("z", "a", "b", "c"));
+        assertOpenState (menuView, false, false, true, true);
+        assertTrue (menuView.isItemSelected (3));
+    }
+
+    @Test
+    public void setAdapterNull_removesItems() {
+        MenuView menuView = createMenuView (new TestAdapter (true, "a"));
+        menuView.setAdapter (null);
+        assertEquals (0, container (menuView).getChildCount ());
+        assertEquals (-1, menuView.getSelectedPosition ());
+    }
+
+    @Test
+    public void setVirtualized_keepsClosedAndSelectedItems() {
+        MenuView menuView = createMenuView (new TestAdapter (true, "a", "b", "c", "d"));
+        menuView.jumpToClosed (1, 2);
+        menuView.setItemSelected (3, true);
+        menuView.setVirtualized (true);
+        layout (menuView);
+        assertOpenState (menuView, true, false, false, true);
+        assertTrue (container (menuView).getChildAt (3).isSelected ());
+
+        menuView.setVirtualized (false);
+        layout (menuView);
+        assertOpenState (menuView, true, false, false, true);
+        assertTrue (menuView.isItemSelected (3));
+        assertTrue (container (menuView).getChildAt (3).isSelected ());
+    }
+}